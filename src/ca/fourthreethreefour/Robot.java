@@ -2,13 +2,19 @@ package ca.fourthreethreefour;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
 
 import ca.fourthreethreefour.commands.ReverseDualActionSolenoid;
 import ca.fourthreethreefour.commands.debug.Logging;
+import ca.fourthreethreefour.commands.debug.Telemetry;
 import ca.fourthreethreefour.settings.AutoFile;
+import ca.fourthreethreefour.settings.AutoFileCache;
+import ca.fourthreethreefour.settings.SettingsWatcher;
 import edu.first.command.Command;
 import edu.first.command.Commands;
-import edu.first.commands.ThreadedCommand;
+import edu.first.command.Scheduler;
+import edu.first.commands.ScheduledCommand;
 import edu.first.commands.common.LoopingCommand;
 import edu.first.identifiers.InversedSpeedController;
 import edu.first.module.Module;
@@ -19,9 +25,10 @@ import edu.first.module.joysticks.BindingJoystick.DualAxisBind;
 import edu.first.module.joysticks.XboxController;
 import edu.first.module.subsystems.Subsystem;
 import edu.first.robot.IterativeRobotAdapter;
+import edu.first.util.dashboard.DashboardPublisher;
+import edu.first.util.log.Logger;
 import edu.wpi.first.wpilibj.CameraServer;
 import edu.wpi.first.wpilibj.PowerDistributionPanel;
-import edu.wpi.first.wpilibj.Timer;
 
 public class Robot extends IterativeRobotAdapter {
     private final Subsystem AUTO_MODULES = new Subsystem(
@@ -37,6 +44,7 @@ public class Robot extends IterativeRobotAdapter {
     }
 
     PowerDistributionPanel panel = new PowerDistributionPanel();
+    private Telemetry telemetry;
     
     @Override
     public void init() {
@@ -50,11 +58,38 @@ public class Robot extends IterativeRobotAdapter {
 
         ALL_MODULES.init();
         drivetrain.setExpiration(0.1);
-        turningPID.setTolerance(TURN_TOLERANCE);
-        distancePID.setTolerance(DISTANCE_TOLERANCE);
+        // gains and tolerances can be tuned without a redeploy
+        settingsWatcher.subscribe(settings -> {
+            distancePID.setPID(settings.getDouble("DISTANCE_P", DISTANCE_P),
+                    settings.getDouble("DISTANCE_I", DISTANCE_I), settings.getDouble("DISTANCE_D", DISTANCE_D));
+            distancePID.setTolerance(settings.getDouble("DISTANCE_TOLERANCE", DISTANCE_TOLERANCE));
+            turningPID.setPID(settings.getDouble("TURN_P", TURN_P),
+                    settings.getDouble("TURN_I", TURN_I), settings.getDouble("TURN_D", TURN_D));
+            turningPID.setTolerance(settings.getDouble("TURN_TOLERANCE", TURN_TOLERANCE));
+        });
+        settingsWatcher.start();
+        telemetry = new Telemetry();
+        
+        if (LOGGING_ENABLED) {
+            Commands.runEvery(new Command() {
+                @Override
+                public void run() {
+                    distancePID.getLoopStats().publish("Distance PID");
+                    turningPID.getLoopStats().publish("Turning PID");
+                    DashboardPublisher dashboard = DashboardPublisher.getInstance();
+                    dashboard.putNumber("Dashboard Publishes", dashboard.getPublishCount());
+                    dashboard.putNumber("Dashboard Suppressed", dashboard.getSuppressedCount());
+                }
+            }, 1);
+        }
         
         CameraServer.getInstance().startAutomaticCapture();
 
+        autoRoutines = autoCache.loadAll(new File(AUTO_DIRECTORY));
+        if (!AUTO_TYPE.isEmpty() && !autoRoutines.containsKey(AUTO_TYPE)) {
+            Logger.getLogger(this).warn("AUTO_TYPE " + AUTO_TYPE + " is missing or did not compile");
+        }
+
         controller1.addDeadband(XboxController.LEFT_FROM_MIDDLE, 0.20);
         controller1.changeAxis(XboxController.LEFT_FROM_MIDDLE, speedFunction);
 
@@ -118,7 +153,7 @@ public class Robot extends IterativeRobotAdapter {
 
         // run ground intake when retracting gear
         final long INTAKE_TIME = 2000L;
-        controller1.addWhenPressed(XboxController.RIGHT_BUMPER, new ThreadedCommand(new LoopingCommand() {
+        controller1.addWhenPressed(XboxController.RIGHT_BUMPER, new ScheduledCommand(new LoopingCommand() {
             long start = 0;
             
             @Override
@@ -157,6 +192,10 @@ public class Robot extends IterativeRobotAdapter {
         //CameraServer.getInstance().startAutomaticCapture();
     }
     
+    private final AutoFileCache autoCache = new AutoFileCache();
+    private final SettingsWatcher settingsWatcher = new SettingsWatcher(SETTINGS_PATH);
+    private Map<String, AutoFile> autoRoutines = Collections.emptyMap();
+    private String autoRoutine;
     private Command autoCommand;
     
     @Override
@@ -168,30 +207,50 @@ public class Robot extends IterativeRobotAdapter {
     public void periodicDisabled() {
         if (AUTO_TYPE == "") { return; }
         String alliance = ""; /* AUTO_ALLIANCE_INDEPENDENT ? "" : (allianceSwitch.getPosition() ? "red-" : "blue-"); */
+        // picked from the routines compiled at init, with alliance independent as backup
+        String routine = alliance + AUTO_TYPE;
+        if (!autoRoutines.containsKey(routine)) {
+            routine = autoRoutines.containsKey(AUTO_TYPE) ? AUTO_TYPE : null;
+        }
+        autoRoutine = routine;
+        if (routine == null) {
+            // warned about at init
+            return;
+        }
         try {
-            autoCommand = new AutoFile(new File(alliance + AUTO_TYPE + ".txt")).toCommand();
-        } catch (IOException e) {
-            // try alliance independent as backup
-            try {
-                autoCommand = new AutoFile(new File(AUTO_TYPE + ".txt")).toCommand();
-            } catch (IOException i) {
-                throw new Error(e.getMessage());
-            }
+            // only reads the file again if it changed
+            autoCache.refresh(routine);
+        } catch (IOException | RuntimeException e) {
+            Logger.getLogger(this).error(routine + " could not be reloaded, using the compiled version", e);
         }
-        
-        Timer.delay(1);
     }
 
     @Override
     public void initAutonomous() {
         AUTO_MODULES.enable();
         drivetrain.setSafetyEnabled(false);
-        Commands.run(autoCommand);
-        drivetrain.stopMotor();
+        autoCommand = autoRoutine == null ? null : autoCache.take(autoRoutine);
+        if (autoCommand != null) {
+            Commands.schedule(autoCommand);
+        }
+    }
+
+    @Override
+    public void periodicAutonomous() {
+        telemetry.record();
+        if (autoCommand != null && !Scheduler.getInstance().isScheduled(autoCommand)) {
+            autoCommand = null;
+            drivetrain.stopMotor();
+        }
     }
 
     @Override
     public void endAutonomous() {
+        if (autoCommand != null) {
+            Scheduler.getInstance().cancel(autoCommand);
+            autoCommand = null;
+        }
+        drivetrain.stopMotor();
         drivetrain.setSafetyEnabled(true);
         AUTO_MODULES.disable();
     }
@@ -210,8 +269,7 @@ public class Robot extends IterativeRobotAdapter {
         controller1.doBinds();
 //        System.out.println(allianceSwitch.getPosition());
 
-        Logging.log("left: " + leftEncoder.get() + " right: " + rightEncoder.get() + "\n");
-        Logging.log("turning: " + navx.getAngle() + "\n");
+        telemetry.record();
         
         if (bucketSolenoid.get() == Direction.LEFT) {
             indicator.set(edu.first.module.actuators.SpikeRelay.Direction.FORWARDS);
@@ -1,36 +1,140 @@
 package ca.fourthreethreefour.commands.debug;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
 import ca.fourthreethreefour.settings.Settings;
+import edu.first.util.dashboard.DashboardPublisher;
+import edu.first.util.log.Logger;
 
+/**
+ * Debug output that is cheap enough to leave in control loops. Nothing is
+ * formatted unless LOGGING_ENABLED is set, the level is at least
+ * LOGGING_LEVEL and, for keyed values, the key's rate limit allows it. Keyed
+ * values are sent at most once every LOGGING_INTERVAL seconds per key (change
+ * a key's limit with {@link #setInterval(String, double)}). Dashboard values
+ * are not rate limited, they go through the {@link DashboardPublisher}, which
+ * only sends the latest value of each key.
+ */
 public class Logging implements Settings {
 
+    public enum Level {
+        DEBUG, INFO, WARN
+    }
+
+    private static final Level LEVEL = parseLevel(LOGGING_LEVEL);
+    private static final long DEFAULT_INTERVAL = (long) (LOGGING_INTERVAL * 1e9);
+    private static final ConcurrentHashMap<String, Limit> limits = new ConcurrentHashMap<>();
+    private static final Logger logger = Logger.getLogger(Logging.class);
+
+    private static Level parseLevel(String level) {
+        try {
+            return Level.valueOf(level.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return Level.DEBUG;
+        }
+    }
+
+    public static boolean isEnabled(Level level) {
+        return LOGGING_ENABLED && level.compareTo(LEVEL) >= 0;
+    }
+
+    // 0 means every value is sent
+    public static void setInterval(String key, double seconds) {
+        limit(key).interval = (long) (seconds * 1e9);
+    }
+
+    private static Limit limit(String key) {
+        Limit limit = limits.get(key);
+        if (limit == null) {
+            limit = limits.computeIfAbsent(key, k -> new Limit());
+        }
+        return limit;
+    }
+
+    // claims the key's next slot, false if it was used too recently
+    private static boolean allowed(String key) {
+        Limit limit = limit(key);
+        long now = System.nanoTime();
+        long next = limit.next.get();
+        return now - next >= 0 && limit.next.compareAndSet(next, now + limit.interval);
+    }
+
     public static void put(String key, double value) {
         if (LOGGING_ENABLED) {
-            edu.wpi.first.wpilibj.smartdashboard.SmartDashboard.putNumber(key, value);
+            DashboardPublisher.getInstance().putNumber(key, value);
         }
     }
     
     public static void put(String key, String value) {
         if (LOGGING_ENABLED) {
-            edu.wpi.first.wpilibj.smartdashboard.SmartDashboard.putString(key, value);
+            DashboardPublisher.getInstance().putString(key, value);
         }
     }
     
     public static void put(String key, boolean value) {
         if (LOGGING_ENABLED) {
-            edu.wpi.first.wpilibj.smartdashboard.SmartDashboard.putBoolean(key, value);
+            DashboardPublisher.getInstance().putBoolean(key, value);
         }
     }
     
     public static void log(String str) {
-        if (LOGGING_ENABLED) {
-            System.out.println(str);
+        log(Level.INFO, str);
+    }
+
+    public static void log(Level level, String str) {
+        if (isEnabled(level)) {
+            send(level, str);
+        }
+    }
+
+    // only calls message when it will be sent
+    public static void log(Level level, Supplier<String> message) {
+        if (isEnabled(level)) {
+            send(level, message.get());
+        }
+    }
+
+    public static void log(String key, double value) {
+        if (isEnabled(Level.DEBUG) && allowed(key)) {
+            send(Level.DEBUG, key + ": " + value);
+        }
+    }
+
+    public static void log(String key, long value) {
+        if (isEnabled(Level.DEBUG) && allowed(key)) {
+            send(Level.DEBUG, key + ": " + value);
+        }
+    }
+
+    public static void log(String key, boolean value) {
+        if (isEnabled(Level.DEBUG) && allowed(key)) {
+            send(Level.DEBUG, key + ": " + value);
         }
     }
     
     public static void logf(String format, Object... args) {
-        if (LOGGING_ENABLED) {
-            System.out.printf(format + "\n", args);
+        if (isEnabled(Level.INFO)) {
+            send(Level.INFO, String.format(format, args));
+        }
+    }
+
+    private static class Limit {
+        final AtomicLong next = new AtomicLong(System.nanoTime());
+        volatile long interval = DEFAULT_INTERVAL;
+    }
+
+    private static void send(Level level, String msg) {
+        switch (level) {
+            case DEBUG:
+                logger.debug(msg);
+                break;
+            case INFO:
+                logger.info(msg);
+                break;
+            default:
+                logger.warn(msg);
         }
     }
 }
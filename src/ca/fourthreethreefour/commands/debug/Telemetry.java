@@ -0,0 +1,72 @@
+package ca.fourthreethreefour.commands.debug;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import ca.fourthreethreefour.settings.Settings;
+import ca.fourthreethreefour.subsystems.TunedDrive;
+import edu.first.util.DriverstationInfo;
+import edu.first.util.log.Logger;
+import edu.first.util.log.TelemetryLog;
+
+/**
+ * Records drive sensors every loop to a binary {@link TelemetryLog}, one file
+ * per robot boot. Only the newest TELEMETRY_FILES files are kept, so logs
+ * can't fill up the roboRIO. Convert with
+ * {@link edu.first.util.log.TelemetryReader}.
+ */
+public class Telemetry implements Settings, TunedDrive {
+
+    private static final String PREFIX = "telemetry-", SUFFIX = ".tlog";
+
+    private final TelemetryLog log;
+    private final TelemetryLog.StringChannel mode;
+    private final TelemetryLog.DoubleChannel left, right, angle, distanceError, turningError;
+
+    public Telemetry() {
+        File file = new File(TELEMETRY_DIRECTORY, PREFIX + System.currentTimeMillis() + SUFFIX);
+        log = new TelemetryLog(file, TELEMETRY_RECORDS);
+        mode = log.addString("Mode");
+        left = log.addDouble("Left Encoder");
+        right = log.addDouble("Right Encoder");
+        angle = log.addDouble("Angle");
+        distanceError = log.addDouble("Distance Error");
+        turningError = log.addDouble("Turning Error");
+
+        if (TELEMETRY_ENABLED) {
+            deleteOldFiles();
+            try {
+                log.open();
+            } catch (IOException ex) {
+                Logger.getLogger(this).error("Could not open telemetry file " + file, ex);
+            }
+        }
+    }
+
+    // leaves room for the new file within TELEMETRY_FILES
+    private void deleteOldFiles() {
+        File[] files = new File(TELEMETRY_DIRECTORY).listFiles(
+                (dir, name) -> name.startsWith(PREFIX) && name.endsWith(SUFFIX));
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (int i = 0; i <= files.length - Math.max(1, TELEMETRY_FILES); i++) {
+            if (!files[i].delete()) {
+                Logger.getLogger(this).warn("Could not delete old telemetry file " + files[i]);
+            }
+        }
+    }
+
+    public void record() {
+        mode.set(DriverstationInfo.getGamePeriod().name());
+        left.set(leftEncoder.get());
+        right.set(rightEncoder.get());
+        angle.set(navx.getAngle());
+        distanceError.set(distancePID.getError());
+        turningError.set(turningPID.getError());
+        log.record();
+    }
+}
@@ -1,16 +1,15 @@
 package ca.fourthreethreefour.settings;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
-import ca.fourthreethreefour.Robot;
 import ca.fourthreethreefour.subsystems.Bucket;
 import ca.fourthreethreefour.subsystems.Drive;
 import ca.fourthreethreefour.subsystems.GearGuard;
@@ -21,6 +20,7 @@ import edu.first.commands.CommandGroup;
 import edu.first.commands.common.LoopingCommand;
 import edu.first.commands.common.SetOutput;
 import edu.first.commands.common.WaitCommand;
+import edu.first.module.controllers.PIDController;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
@@ -29,16 +29,19 @@ import ca.fourthreethreefour.commands.debug.*;
 /*
  * driveSpeed = 0.43
  * foo = name
- * 1-CommandName:(0.5, -0.5, 1000L)
- * 2-OtherCommand:(0.5, driveSpeed, 1000L)
- * 3-Command:1
- * 4-!ConcurrentCommand:2
- * 5-!ConcurrentCommand:3
+ * commandname(0.5, -0.5, 1000)
+ * othercommand(0.5, driveSpeed, 1000)
+ * command(1)
+ * !concurrentcommand(2)
+ * !concurrentcommand(3)
+ *
+ * names are case insensitive, and an argument that is exactly a variable
+ * name is replaced by its value. see AutoParser for the full grammar
  * 
  * add any custom commands in the static {} block below, look at
  * PrintCommand for an example
  */
-public class AutoFile extends Robot implements Drive, TunedDrive {
+public class AutoFile implements Drive, TunedDrive {
     public static final HashMap<String, RuntimeCommand> COMMANDS = new HashMap<>();
 
     static {
@@ -49,7 +52,7 @@ public class AutoFile extends Robot implements Drive, TunedDrive {
         COMMANDS.put("turn", new TurnCommand());
         COMMANDS.put("stop", new StopCommand());
         COMMANDS.put("wait", new Wait());
-        COMMANDS.put("waitUntil", new WaitUntil());
+        COMMANDS.put("waituntil", new WaitUntil());
         COMMANDS.put("deploybucket", new DeployBucket());
         COMMANDS.put("retractbucket", new RetractBucket());
         COMMANDS.put("closeguard", new CloseGuard());
@@ -102,28 +105,33 @@ public class AutoFile extends Robot implements Drive, TunedDrive {
         }
     }
 
-    private static class PrintCommand implements RuntimeCommand {
+    private static class PrintCommand extends RuntimeCommand {
+        PrintCommand() {
+            super(optional("message", Type.TEXT, ""));
+        }
+
         @Override
-        public Command getCommand(List<String> args) {
+        public Command getCommand(Arguments args) {
+            String message = args.getText(0);
             return new Command() {
                 @Override
                 public void run() {
-                    System.out.println(args.toString());
+                    System.out.println(message);
                 }
             };
         }
     }
 
-    private static class DriveCommand implements RuntimeCommand {
-        @Override
-        public Command getCommand(List<String> args) {
-            double left = Double.parseDouble(args.get(0));
-            double right = Double.parseDouble(args.get(1));
-            Timeout timeout = new Timeout(Long.parseLong(args.get(2)));
+    private static class DriveCommand extends RuntimeCommand {
+        DriveCommand() {
+            super(required("left", Type.DOUBLE), required("right", Type.DOUBLE), required("timeout", Type.LONG));
+        }
 
-            if (args.size() != 3) {
-                throw new IllegalArgumentException("Error in Drive: Invalid arguments");
-            }
+        @Override
+        public Command getCommand(Arguments args) {
+            double left = args.getDouble(0);
+            double right = args.getDouble(1);
+            Timeout timeout = new Timeout(args.getLong(2));
 
             return new LoopingCommandWithTimeout(timeout) {
                 @Override
@@ -134,16 +142,22 @@ public class AutoFile extends Robot implements Drive, TunedDrive {
         }
     }
 
-    private static class DriveDistanceCommand implements RuntimeCommand {
+    private static class DriveDistanceCommand extends RuntimeCommand {
+        DriveDistanceCommand() {
+            super(required("distance", Type.INT), required("compensation", Type.DOUBLE),
+                    optional("threshold", Type.INT, "10"), optional("timeout", Type.LONG, "8000"));
+        }
+
         @Override
-        public Command getCommand(List<String> args) {
-            int distance = Integer.parseInt(args.get(0));
-            double compensation = Double.parseDouble(args.get(1));
-            final int threshold = args.size() > 2 ? Integer.parseInt(args.get(2)) : 10;
-            Timeout timeout = new Timeout(args.size() > 3 ? Integer.parseInt(args.get(3)) : 8000L);
+        public Command getCommand(Arguments args) {
+            int distance = args.getInt(0);
+            double compensation = args.getDouble(1);
+            final int threshold = args.getInt(2);
+            Timeout timeout = new Timeout(args.getLong(3));
 
             return new LoopingCommandWithTimeout(timeout) {
                 int correctIterations = 0;
+                long lastCycle;
 
                 @Override
                 public boolean continueLoop() {
@@ -154,8 +168,8 @@ public class AutoFile extends Robot implements Drive, TunedDrive {
 
                     if (distancePID.isEnabled() && distancePID.onTarget()) {
                         correctIterations++;
-                        Logging.logf("error", distancePID.getError());
-                        Logging.logf("threshold", distancePID.getTolerance());
+                        Logging.log("error", distancePID.getError());
+                        Logging.log("threshold", distancePID.getTolerance());
                     } else {
                         correctIterations = 0;
                     }
@@ -167,16 +181,21 @@ public class AutoFile extends Robot implements Drive, TunedDrive {
                 public void firstLoop() {
                     distancePID.setSetpoint(distance);
                     distancePID.enable();
+                    lastCycle = distancePID.getSnapshot().getCycle();
                     Logging.log("drivedistance started");
                 }
 
                 @Override
                 public void runLoop() {
-                    try {
-                        distancePID.wait(20);
-                    } catch (InterruptedException e) {}
-                    Logging.put("Distance Error", distancePID.getError());
-                    double output = speedOutput.get();
+                    // only drive on a fresh output, once per control cycle
+                    PIDController.Snapshot cycle = distancePID.getSnapshot();
+                    if (cycle.getCycle() == lastCycle) {
+                        return;
+                    }
+                    lastCycle = cycle.getCycle();
+
+                    Logging.put("Distance Error", cycle.getError());
+                    double output = cycle.getResult();
                     drivetrain.set(output + compensation, output - compensation);
                 }
                 
@@ -191,16 +210,22 @@ public class AutoFile extends Robot implements Drive, TunedDrive {
         }
     }
 
-    private static class DriveStraightCommand implements RuntimeCommand {
+    private static class DriveStraightCommand extends RuntimeCommand {
+        DriveStraightCommand() {
+            super(required("distance", Type.INT), optional("threshold", Type.INT, "10"),
+                    optional("timeout", Type.LONG, "8000"), optional("speed", Type.DOUBLE, "1"));
+        }
+
         @Override
-        public Command getCommand(List<String> args) {
-            int distance = Integer.parseInt(args.get(0));
-            final int threshold = args.size() > 1 ? Integer.parseInt(args.get(1)) : 10;
-            Timeout timeout = new Timeout(args.size() > 2 ? Integer.parseInt(args.get(2)) : 8000L);
-            double speed = args.size() > 3 ? Double.parseDouble(args.get(3)) : 1;
+        public Command getCommand(Arguments args) {
+            int distance = args.getInt(0);
+            final int threshold = args.getInt(1);
+            Timeout timeout = new Timeout(args.getLong(2));
+            double speed = args.getDouble(3);
 
             return new LoopingCommandWithTimeout(timeout) {
                 int correctIterations = 0;
+                long lastCycle;
 
                 @Override
                 public boolean continueLoop() {
@@ -211,8 +236,8 @@ public class AutoFile extends Robot implements Drive, TunedDrive {
 
                     if (distancePID.isEnabled() && distancePID.onTarget()) {
                         correctIterations++;
-                        Logging.logf("error", distancePID.getError());
-                        Logging.logf("threshold", distancePID.getTolerance());
+                        Logging.log("error", distancePID.getError());
+                        Logging.log("threshold", distancePID.getTolerance());
                     } else {
                         correctIterations = 0;
                     }
@@ -232,20 +257,22 @@ public class AutoFile extends Robot implements Drive, TunedDrive {
                     double angle = navx.getAngle();
                     turningPID.setSetpoint(angle);
                     turningPID.enable();
+                    lastCycle = distancePID.getSnapshot().getCycle();
 
-                    Logging.logf("drivestraight setpoint", distancePID.getSetpoint());
+                    Logging.log("drivestraight setpoint", distancePID.getSetpoint());
                 }
 
                 @Override
                 public void runLoop() {
-                    synchronized (distancePID) {
-                        try {
-                            distancePID.wait(20);
-                        } catch (InterruptedException e) {}
+                    // both controllers have the same period, so they run in the same cycle
+                    PIDController.Snapshot cycle = distancePID.getSnapshot();
+                    if (cycle.getCycle() == lastCycle) {
+                        return;
                     }
-                    
-                    Logging.put("Distance Error", distancePID.getError());
-                    drivetrain.arcadeDrive(speedOutput.get() * speed, turnOutput.get());
+                    lastCycle = cycle.getCycle();
+
+                    Logging.put("Distance Error", cycle.getError());
+                    drivetrain.arcadeDrive(cycle.getResult() * speed, turningPID.getSnapshot().getResult());
                 }
                 
                 @Override
@@ -258,15 +285,21 @@ public class AutoFile extends Robot implements Drive, TunedDrive {
         }
     }
 
-    private static class TurnCommand implements RuntimeCommand {
+    private static class TurnCommand extends RuntimeCommand {
+        TurnCommand() {
+            super(required("angle", Type.DOUBLE), optional("threshold", Type.INT, "10"),
+                    optional("timeout", Type.LONG, "8000"));
+        }
+
         @Override
-        public Command getCommand(List<String> args) {
-            double angle = Double.parseDouble(args.get(0));
-            final int threshold = args.size() > 1 ? Integer.parseInt(args.get(1)) : 10;
-            Timeout timeout = new Timeout(args.size() > 2 ? Integer.parseInt(args.get(2)) : 8000L);
+        public Command getCommand(Arguments args) {
+            double angle = args.getDouble(0);
+            final int threshold = args.getInt(1);
+            Timeout timeout = new Timeout(args.getLong(2));
 
             return new LoopingCommandWithTimeout(timeout) {
                 int correctIterations = 0;
+                long lastCycle;
 
                 @Override
                 public boolean continueLoop() {
@@ -275,8 +308,8 @@ public class AutoFile extends Robot implements Drive, TunedDrive {
                     }
 
                     if (turningPID.isEnabled() && turningPID.onTarget()) {
-                        Logging.logf("error", turningPID.getError());
-                        Logging.logf("threshold", turningPID.getTolerance());
+                        Logging.log("error", turningPID.getError());
+                        Logging.log("threshold", turningPID.getTolerance());
                         correctIterations++;
                     } else {
                         correctIterations = 0;
@@ -290,18 +323,20 @@ public class AutoFile extends Robot implements Drive, TunedDrive {
                     navx.reset();
                     turningPID.setSetpoint(angle);
                     turningPID.enable();
+                    lastCycle = turningPID.getSnapshot().getCycle();
                     Logging.log("turn started");
                 }
 
                 @Override
                 public void runLoop() {
-                    synchronized (turningPID) {
-                        try {
-                            turningPID.wait(20);
-                        } catch (InterruptedException e) {} //no
+                    PIDController.Snapshot cycle = turningPID.getSnapshot();
+                    if (cycle.getCycle() == lastCycle) {
+                        return;
                     }
-                    drivetrain.arcadeDrive(0, turnOutput.get());
-                        Logging.put("Turning Error", turningPID.getError());
+                    lastCycle = cycle.getCycle();
+
+                    drivetrain.arcadeDrive(0, cycle.getResult());
+                    Logging.put("Turning Error", cycle.getError());
                 }
                 
                 @Override
@@ -313,45 +348,50 @@ public class AutoFile extends Robot implements Drive, TunedDrive {
         }
     }
 
-    private static class StopCommand implements RuntimeCommand {
+    private static class StopCommand extends RuntimeCommand {
         @Override
-        public Command getCommand(List<String> args) {
+        public Command getCommand(Arguments args) {
             return new SetOutput(drivetrain.getDriveStraight(), 0);
         }
     }
 
-    private static class Wait implements RuntimeCommand {
+    private static class Wait extends RuntimeCommand {
+        Wait() {
+            super(required("seconds", Type.DOUBLE));
+        }
+
         @Override
-        public Command getCommand(List<String> args) {
-            if (args.size() != 1) {
-                throw new IllegalArgumentException("Error in Wait: Invalid arguments");
-            } else {
-                return new WaitCommand(Double.parseDouble(args.get(0)));
-            }
+        public Command getCommand(Arguments args) {
+            return new WaitCommand(args.getDouble(0));
         }
     }
 
-    private static class WaitUntil implements RuntimeCommand {
+    private static class WaitUntil extends RuntimeCommand {
+        WaitUntil() {
+            super(required("time", Type.DOUBLE));
+        }
 
         @Override
-        public Command getCommand(List<String> args) {
-            double time = Double.parseDouble(args.get(0));
-            return new Command() {
-
+        public Command getCommand(Arguments args) {
+            double time = args.getDouble(0);
+            return new LoopingCommand() {
                 @Override
-                public void run() {
+                public boolean continueLoop() {
                     //getMatchTime returns the time left in the period, not how much time has passed
-                    while (15 - DriverStation.getInstance().getMatchTime() < time) {
-                        drivetrain.stopMotor();
-                    }
+                    return 15 - DriverStation.getInstance().getMatchTime() < time;
+                }
+
+                @Override
+                public void runLoop() {
+                    drivetrain.stopMotor();
                 }
             };
         }
     }
 
-    private static class DeployBucket implements RuntimeCommand, Bucket {
+    private static class DeployBucket extends RuntimeCommand implements Bucket {
         @Override
-        public Command getCommand(List<String> args) {
+        public Command getCommand(Arguments args) {
             return new Command() {
                 @Override
                 public void run() {
@@ -361,9 +401,9 @@ public class AutoFile extends Robot implements Drive, TunedDrive {
         }
     }
 
-    private static class RetractBucket implements RuntimeCommand, Bucket {
+    private static class RetractBucket extends RuntimeCommand implements Bucket {
         @Override
-        public Command getCommand(List<String> args) {
+        public Command getCommand(Arguments args) {
             return new Command() {
                 @Override
                 public void run() {
@@ -373,9 +413,9 @@ public class AutoFile extends Robot implements Drive, TunedDrive {
         }
     }
 
-    private static class CloseGuard implements RuntimeCommand, GearGuard {
+    private static class CloseGuard extends RuntimeCommand implements GearGuard {
         @Override
-        public Command getCommand(List<String> args) {
+        public Command getCommand(Arguments args) {
             return new Command() {
                 @Override
                 public void run() {
@@ -385,9 +425,9 @@ public class AutoFile extends Robot implements Drive, TunedDrive {
         }
     }
 
-    private static class OpenGuard implements RuntimeCommand, GearGuard {
+    private static class OpenGuard extends RuntimeCommand implements GearGuard {
         @Override
-        public Command getCommand(List<String> args) {
+        public Command getCommand(Arguments args) {
             return new Command() {
                 @Override
                 public void run() {
@@ -397,106 +437,245 @@ public class AutoFile extends Robot implements Drive, TunedDrive {
         }
     }
 
-    public static class Entry {
-        final String key, value;
+    public static class Argument {
+        final String text;
+        final int line, column;
+
+        public Argument(String text, int line, int column) {
+            this.text = text;
+            this.line = line;
+            this.column = column;
+        }
+    }
 
-        public Entry(String key, String value) {
-            this.key = key;
-            this.value = value;
+    public static class Statement {
+        final boolean concurrent;
+        final String name;
+        final List<Argument> arguments;
+        final int line, column;
+
+        public Statement(boolean concurrent, String name, List<Argument> arguments, int line, int column) {
+            this.concurrent = concurrent;
+            this.name = name;
+            this.arguments = arguments;
+            this.line = line;
+            this.column = column;
         }
     }
 
-    private List<Entry> entries = new ArrayList<>();
-    private Map<String, String> variables = new HashMap<>();
+    public static class AutoSyntaxException extends IllegalArgumentException {
+        private static final long serialVersionUID = 2985417713208722615L;
 
-    public AutoFile(File file) throws IOException {
-        String contents;
-        try (FileInputStream fi = new FileInputStream(file)) {
-            StringBuilder builder = new StringBuilder();
-            int ch;
-            while ((ch = fi.read()) != -1) {
-                builder.append((char) ch);
-            }
-            contents = builder.toString();
+        public final int line, column;
+
+        public AutoSyntaxException(int line, int column, String message) {
+            super("line " + line + ", column " + column + ": " + message);
+            this.line = line;
+            this.column = column;
         }
+    }
 
-        for (String line : contents.split("\n")) {
-            if (line.trim().length() == 0) {
-                continue;
-            } else if (line.contains("=")) {
-                String key = line.substring(0, line.indexOf('=') + 1).trim().toLowerCase();
-                String value = line.substring(line.indexOf('=') + 1).trim().toLowerCase();
-                variables.put(key, value);
-            } else {
-                String key = line.substring(0, line.indexOf('(')).trim().toLowerCase();
-                String value = line.substring(line.indexOf('(') + 1, line.lastIndexOf(')')).trim().toLowerCase();
+    // a statement that has been checked against COMMANDS and had its variables resolved
+    private static class Step {
+        final boolean concurrent;
+        final RuntimeCommand command;
+        final Arguments arguments;
 
-                if (value.startsWith("(")) {
-                    value = value.substring(1);
-                }
+        Step(boolean concurrent, RuntimeCommand command, Arguments arguments) {
+            this.concurrent = concurrent;
+            this.command = command;
+            this.arguments = arguments;
+        }
+    }
 
-                if (value.endsWith(")")) {
-                    value = value.substring(0, value.length() - 1);
-                }
+    private final List<Step> steps;
+
+    public AutoFile(File file) throws IOException {
+        this(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parses and validates the whole file up front. Unknown commands and bad
+     * arguments are reported here with their line and column, instead of when
+     * the routine is run. Arguments are parsed into their types once, here.
+     */
+    public AutoFile(String contents) {
+        List<Statement> statements = new ArrayList<>();
+        Map<String, Argument> variables = new HashMap<>();
+        new AutoParser(contents).parse(statements, variables);
+
+        List<Step> steps = new ArrayList<>(statements.size());
+        for (Statement statement : statements) {
+            RuntimeCommand command = COMMANDS.get(statement.name);
+            if (command == null) {
+                throw new AutoSyntaxException(statement.line, statement.column, statement.name + " not found");
+            }
 
-                entries.add(new Entry(key, value));
+            List<String> arguments = resolve(statement.arguments, variables);
+            try {
+                steps.add(new Step(statement.concurrent, command, command.parse(arguments)));
+            } catch (IllegalArgumentException e) {
+                throw new AutoSyntaxException(statement.line, statement.column,
+                        statement.name + ": " + e.getMessage());
             }
         }
+        this.steps = Collections.unmodifiableList(steps);
     }
 
-    public Command toCommand() {
-        ArrayList<AutoFileCommand> commands = new ArrayList<>();
-        for (Entry e : entries) {
-            String value = e.value;
-            for (Map.Entry<String, String> variable : variables.entrySet()) {
-                if (value.contains(variable.getKey())) {
-                    value = value.replace(variable.getKey(), variable.getValue());
+    // arguments that name a variable are swapped for its value, whole words only
+    private static List<String> resolve(List<Argument> arguments, Map<String, Argument> variables) {
+        List<String> resolved = new ArrayList<>(arguments.size());
+        for (Argument argument : arguments) {
+            Argument value = argument;
+            for (int depth = 0; variables.containsKey(value.text.toLowerCase()); depth++) {
+                if (depth > variables.size()) {
+                    throw new AutoSyntaxException(argument.line, argument.column,
+                            "variable " + argument.text + " refers to itself");
                 }
+                value = variables.get(value.text.toLowerCase());
             }
-
-            commands.add(new AutoFileCommand(e.key, value));
+            resolved.add(value.text);
         }
+        return Collections.unmodifiableList(resolved);
+    }
 
+    public Command toCommand() {
         CommandGroup group = new CommandGroupFactory();
-        for (AutoFileCommand command : commands) {
-            if (COMMANDS.containsKey(command.name)) {
-                if (command.concurrent) {
-                    group.appendConcurrent(COMMANDS.get(command.name).getCommand(command.arguments));
-                } else {
-                    group.appendSequential(COMMANDS.get(command.name).getCommand(command.arguments));
-                }
+        for (Step step : steps) {
+            if (step.concurrent) {
+                group.appendConcurrent(step.command.getCommand(step.arguments));
             } else {
-                throw new Error(command.name + " not found");
+                group.appendSequential(step.command.getCommand(step.arguments));
             }
         }
 
         return group;
     }
 
-    private static class AutoFileCommand {
-        public final boolean concurrent;
-        public final String name;
-        public final List<String> arguments;
+    private enum Type {
+        INT, LONG, DOUBLE, TEXT
+    }
+
+    private static class Parameter {
+        final String name;
+        final Type type;
+        final String defaultValue;
 
-        public AutoFileCommand(String key, String arguments) {
-            if (key.startsWith("!")) {
-                this.concurrent = true;
-                this.name = key.substring(1);
-            } else {
-                this.concurrent = false;
-                this.name = key;
+        Parameter(String name, Type type, String defaultValue) {
+            this.name = name;
+            this.type = type;
+            this.defaultValue = defaultValue;
+        }
+    }
+
+    /**
+     * Arguments of a single statement, already parsed into their declared
+     * types. Numbers are held as primitives, nothing is parsed again while
+     * building or running the command.
+     */
+    public static final class Arguments {
+        private final long[] integers;
+        private final double[] decimals;
+        private final String[] text;
+
+        private Arguments(int size) {
+            integers = new long[size];
+            decimals = new double[size];
+            text = new String[size];
+        }
+
+        public int getInt(int index) {
+            return (int) integers[index];
+        }
+
+        public long getLong(int index) {
+            return integers[index];
+        }
+
+        public double getDouble(int index) {
+            return decimals[index];
+        }
+
+        public String getText(int index) {
+            return text[index];
+        }
+    }
+
+    /*
+     * A command that can be used from a file. Subclasses declare their
+     * parameters in the constructor, and get them back already parsed.
+     * If the last parameter is TEXT, extra arguments are joined into it.
+     */
+    private static abstract class RuntimeCommand {
+        private final Parameter[] parameters;
+
+        RuntimeCommand(Parameter... parameters) {
+            this.parameters = parameters;
+        }
+
+        static Parameter required(String name, Type type) {
+            return new Parameter(name, type, null);
+        }
+
+        static Parameter optional(String name, Type type, String defaultValue) {
+            return new Parameter(name, type, defaultValue);
+        }
+
+        Arguments parse(List<String> args) {
+            boolean joinRest = parameters.length > 0 && parameters[parameters.length - 1].type == Type.TEXT;
+            if (args.size() > parameters.length && !joinRest) {
+                throw new IllegalArgumentException("expected at most " + parameters.length + " arguments "
+                        + describe() + ", got " + args.size());
             }
 
-            String inner = arguments;
-            if (arguments.contains("(") && arguments.contains(")")) {
-                inner = arguments.substring(arguments.indexOf('(') + 1, arguments.indexOf(')'));
+            Arguments parsed = new Arguments(parameters.length);
+            for (int i = 0; i < parameters.length; i++) {
+                Parameter parameter = parameters[i];
+                String value;
+                if (i < args.size()) {
+                    value = (joinRest && i == parameters.length - 1)
+                            ? String.join(", ", args.subList(i, args.size())) : args.get(i);
+                } else if (parameter.defaultValue != null) {
+                    value = parameter.defaultValue;
+                } else {
+                    throw new IllegalArgumentException("missing " + parameter.name + " " + describe());
+                }
+
+                try {
+                    switch (parameter.type) {
+                    case INT:
+                        parsed.integers[i] = Integer.parseInt(value);
+                        break;
+                    case LONG:
+                        parsed.integers[i] = Long.parseLong(value);
+                        break;
+                    case DOUBLE:
+                        parsed.decimals[i] = Double.parseDouble(value);
+                        break;
+                    case TEXT:
+                        parsed.text[i] = value;
+                        break;
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException(parameter.name + " should be "
+                            + parameter.type.toString().toLowerCase() + ", got " + value);
+                }
             }
-            this.arguments = Arrays.asList(inner.split(",")).stream().map(String::trim).collect(Collectors.toList());
+            return parsed;
+        }
+
+        private String describe() {
+            StringBuilder builder = new StringBuilder("(");
+            for (int i = 0; i < parameters.length; i++) {
+                builder.append(i == 0 ? "" : ", ").append(parameters[i].name);
+                if (parameters[i].defaultValue != null) {
+                    builder.append(" = ").append(parameters[i].defaultValue);
+                }
+            }
+            return builder.append(")").toString();
         }
-    }
 
-    private interface RuntimeCommand {
-        public Command getCommand(List<String> args);
+        public abstract Command getCommand(Arguments args);
     }
 
     private static class CommandGroupFactory extends CommandGroup {
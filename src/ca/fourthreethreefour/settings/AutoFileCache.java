@@ -0,0 +1,208 @@
+package ca.fourthreethreefour.settings;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+import ca.fourthreethreefour.commands.debug.Logging;
+import edu.first.command.Command;
+import edu.first.util.log.Logger;
+
+/**
+ * Keeps autonomous routines compiled between disabled loops. A file is only
+ * read again when its modification time or size changes, and only re-parsed
+ * when its contents actually changed. There is always a built command ready
+ * for {@link #take(File)}, so starting autonomous never touches the disk.
+ * Routines compiled by {@link #loadAll(File)} can also be refreshed and taken
+ * by name, which is one map lookup.
+ */
+public class AutoFileCache {
+    // how often the file is looked at on disk while disabled
+    private static final long CHECK_INTERVAL = 1000L;
+
+    private static class CachedFile {
+        long lastChecked;
+        long lastModified;
+        long length;
+        long checksum;
+        AutoFile autoFile;
+        Command command;
+    }
+
+    private final Map<String, CachedFile> files = new HashMap<>();
+    // routine name to the key of its file, for routines from loadAll
+    private final Map<String, String> names = new HashMap<>();
+
+    private static String key(File file) {
+        return file.toPath().toAbsolutePath().normalize().toString();
+    }
+
+    private static CachedFile compile(File file, byte[] contents, long checksum) {
+        CachedFile compiled = new CachedFile();
+        compiled.checksum = checksum;
+        compiled.autoFile = new AutoFile(new String(contents, StandardCharsets.UTF_8));
+        compiled.command = compiled.autoFile.toCommand();
+        compiled.lastModified = file.lastModified();
+        compiled.length = contents.length;
+        return compiled;
+    }
+
+    private static long checksum(byte[] contents) {
+        CRC32 crc = new CRC32();
+        crc.update(contents);
+        return crc.getValue();
+    }
+
+    /**
+     * Compiles every {@code .txt} file in {@code directory} at once, spread
+     * over all available cores. Files that fail to parse are logged with their
+     * line and column, and only cause an error if they are selected later.
+     *
+     * @param directory folder that holds the autonomous files
+     * @return routines that compiled, by file name without {@code .txt}
+     */
+    public Map<String, AutoFile> loadAll(File directory) {
+        File[] found = directory.listFiles((dir, name) -> name.endsWith(".txt"));
+        if (found == null) {
+            Logger.getLogger(AutoFileCache.class).warn(directory + " is not a directory, no autonomous precompiled");
+            return Collections.emptyMap();
+        }
+
+        long start = System.nanoTime();
+        Map<String, CachedFile> compiled = new ConcurrentHashMap<>();
+        Arrays.stream(found).parallel().forEach(file -> {
+            try {
+                byte[] contents = Files.readAllBytes(file.toPath());
+                compiled.put(key(file), compile(file, contents, checksum(contents)));
+            } catch (IOException | RuntimeException e) {
+                Logger.getLogger(AutoFileCache.class).error(file.getName() + " failed to compile", e);
+            }
+        });
+        long elapsed = System.nanoTime() - start;
+
+        Map<String, AutoFile> routines = new HashMap<>();
+        synchronized (this) {
+            files.putAll(compiled);
+            for (Map.Entry<String, CachedFile> e : compiled.entrySet()) {
+                String name = new File(e.getKey()).getName();
+                name = name.substring(0, name.length() - ".txt".length());
+                names.put(name, e.getKey());
+                routines.put(name, e.getValue().autoFile);
+            }
+        }
+
+        Logger.getLogger(AutoFileCache.class).info(String.format("compiled %d of %d autonomous files in %.1f ms",
+                compiled.size(), found.length, elapsed / 1e6));
+        return Collections.unmodifiableMap(routines);
+    }
+
+    /**
+     * Makes sure the routine in {@code file} is compiled and up to date. Cheap
+     * to call every loop, since the file is only checked once per
+     * {@link #CHECK_INTERVAL}.
+     *
+     * @param file autonomous file to load
+     * @throws IOException when the file cannot be read
+     */
+    public synchronized void load(File file) throws IOException {
+        check(key(file), file);
+    }
+
+    /**
+     * Makes sure the routine called {@code name}, which was compiled by
+     * {@link #loadAll(File)}, is up to date. The file is only looked at once
+     * per {@link #CHECK_INTERVAL}, and only read again when it changed. If it
+     * can't be read or no longer compiles, the routine compiled before is
+     * kept.
+     *
+     * @param name routine name, the file name without {@code .txt}
+     * @return false if there is no such routine
+     * @throws IOException when the changed file cannot be read
+     */
+    public synchronized boolean refresh(String name) throws IOException {
+        String path = names.get(name);
+        if (path == null) {
+            return false;
+        }
+        check(path, null);
+        return true;
+    }
+
+    // file is only made when the file is actually looked at
+    private void check(String path, File file) throws IOException {
+        CachedFile cached = files.get(path);
+        long now = System.currentTimeMillis();
+
+        if (cached != null && now - cached.lastChecked < CHECK_INTERVAL) {
+            return;
+        }
+        if (cached != null) {
+            // a file that fails is tried again next interval, not every loop
+            cached.lastChecked = now;
+        }
+        if (file == null) {
+            file = new File(path);
+        }
+
+        if (cached == null || cached.lastModified != file.lastModified() || cached.length != file.length()) {
+            byte[] contents = Files.readAllBytes(file.toPath());
+            long checksum = checksum(contents);
+
+            if (cached == null || cached.checksum != checksum) {
+                cached = compile(file, contents, checksum);
+                files.put(path, cached);
+                Logging.log("compiled " + path);
+            } else {
+                cached.lastModified = file.lastModified();
+                cached.length = contents.length;
+            }
+        }
+
+        if (cached.command == null) {
+            cached.command = cached.autoFile.toCommand();
+        }
+        cached.lastChecked = now;
+    }
+
+    /**
+     * Returns the built command for {@code file}, which must have been
+     * {@link #load(File) loaded} already. Commands hold state while they run,
+     * so the next call to {@code load} builds a fresh one from the parsed file.
+     *
+     * @param file autonomous file that was loaded
+     * @return command to run, or null if the file was never loaded
+     */
+    public synchronized Command take(File file) {
+        return take(files.get(key(file)));
+    }
+
+    /**
+     * Returns the built command for the routine called {@code name}, which was
+     * compiled by {@link #loadAll(File)}. Never touches the disk.
+     *
+     * @param name routine name, the file name without {@code .txt}
+     * @return command to run, or null if there is no such routine
+     */
+    public synchronized Command take(String name) {
+        String path = names.get(name);
+        return path == null ? null : take(files.get(path));
+    }
+
+    private Command take(CachedFile cached) {
+        if (cached == null) {
+            return null;
+        }
+
+        Command command = cached.command != null ? cached.command : cached.autoFile.toCommand();
+        cached.command = null;
+        cached.lastChecked = 0;
+        return command;
+    }
+}
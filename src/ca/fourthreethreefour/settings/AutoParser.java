@@ -0,0 +1,178 @@
+package ca.fourthreethreefour.settings;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import ca.fourthreethreefour.settings.AutoFile.Argument;
+import ca.fourthreethreefour.settings.AutoFile.AutoSyntaxException;
+import ca.fourthreethreefour.settings.AutoFile.Statement;
+
+/**
+ * Single pass parser for the autonomous language. Walks the source once,
+ * keeping track of line and column so that errors point at the exact spot.
+ *
+ * <pre>
+ * file      = { line }
+ * line      = [ variable | command ] newline
+ * variable  = name '=' text
+ * command   = [ '!' ] name '(' [ text { ',' text } ] ')'
+ * </pre>
+ */
+final class AutoParser {
+    private final String source;
+    private final int length;
+    private int pos = 0;
+    private int line = 1;
+    private int column = 1;
+
+    AutoParser(String source) {
+        this.source = source;
+        this.length = source.length();
+    }
+
+    void parse(List<Statement> statements, Map<String, Argument> variables) {
+        while (pos < length) {
+            skipSpaces();
+            if (atEndOfLine()) {
+                nextLine();
+                continue;
+            }
+
+            int startLine = line, startColumn = column;
+            boolean concurrent = false;
+            if (peek() == '!') {
+                concurrent = true;
+                advance();
+                skipSpaces();
+            }
+
+            String name = readName();
+            skipSpaces();
+
+            if (!atEndOfLine() && peek() == '=') {
+                if (concurrent) {
+                    throw error(startLine, startColumn, "variables cannot be concurrent");
+                }
+                advance();
+                skipSpaces();
+                int valueLine = line, valueColumn = column;
+                String value = readText(false);
+                if (value.isEmpty()) {
+                    throw error(valueLine, valueColumn, "expected a value for " + name);
+                }
+                variables.put(name, new Argument(value, valueLine, valueColumn));
+            } else if (!atEndOfLine() && peek() == '(') {
+                advance();
+                statements.add(new Statement(concurrent, name, readArguments(), startLine, startColumn));
+            } else {
+                throw error("expected '(' or '=' after " + name);
+            }
+
+            skipSpaces();
+            if (!atEndOfLine()) {
+                throw error("unexpected '" + peek() + "'");
+            }
+            nextLine();
+        }
+    }
+
+    private List<Argument> readArguments() {
+        List<Argument> arguments = new ArrayList<>();
+        while (true) {
+            skipSpaces();
+            int argLine = line, argColumn = column;
+            String text = readText(true);
+
+            if (atEndOfLine()) {
+                throw error("expected ')'");
+            }
+            char end = advance();
+
+            if (text.isEmpty()) {
+                if (end == ')' && arguments.isEmpty()) {
+                    return arguments;
+                }
+                throw error(argLine, argColumn, "empty argument");
+            }
+            arguments.add(new Argument(text, argLine, argColumn));
+
+            if (end == ')') {
+                return arguments;
+            }
+        }
+    }
+
+    private String readName() {
+        int start = pos, startColumn = column;
+        while (pos < length) {
+            char c = peek();
+            if (Character.isLetterOrDigit(c) || c == '_' || c == '-') {
+                advance();
+            } else {
+                break;
+            }
+        }
+        if (start == pos) {
+            throw error(line, startColumn, atEndOfLine() ? "expected a name" : "unexpected '" + peek() + "'");
+        }
+        return source.substring(start, pos).toLowerCase();
+    }
+
+    // reads until the end of the line, or an argument separator when inArguments
+    private String readText(boolean inArguments) {
+        int start = pos, end = pos;
+        while (!atEndOfLine()) {
+            char c = peek();
+            if (inArguments && (c == ',' || c == ')')) {
+                break;
+            }
+            advance();
+            if (c != ' ' && c != '\t') {
+                end = pos;
+            }
+        }
+        return source.substring(start, end);
+    }
+
+    private void skipSpaces() {
+        while (pos < length) {
+            char c = peek();
+            if (c == ' ' || c == '\t' || c == '\r') {
+                advance();
+            } else {
+                break;
+            }
+        }
+    }
+
+    private boolean atEndOfLine() {
+        return pos >= length || source.charAt(pos) == '\n' || source.charAt(pos) == '\r';
+    }
+
+    private void nextLine() {
+        while (pos < length && source.charAt(pos) != '\n') {
+            pos++;
+        }
+        pos++;
+        line++;
+        column = 1;
+    }
+
+    private char peek() {
+        return source.charAt(pos);
+    }
+
+    private char advance() {
+        column++;
+        return source.charAt(pos++);
+    }
+
+    private AutoSyntaxException error(String message) {
+        return error(line, column, message);
+    }
+
+    private AutoSyntaxException error(int line, int column, String message) {
+        return new AutoSyntaxException(line, column, message);
+    }
+}
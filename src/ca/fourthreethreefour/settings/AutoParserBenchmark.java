@@ -0,0 +1,142 @@
+package ca.fourthreethreefour.settings;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ca.fourthreethreefour.settings.AutoFile.Argument;
+import ca.fourthreethreefour.settings.AutoFile.AutoSyntaxException;
+import ca.fourthreethreefour.settings.AutoFile.Statement;
+
+/**
+ * Times loading every autonomous file, with the old byte-at-a-time reader and
+ * split/replace passes and with the current single read and AutoParser. Only
+ * the text handling is timed; commands aren't looked up, so this runs off the
+ * robot:
+ *
+ * <pre>
+ * java ca.fourthreethreefour.settings.AutoParserBenchmark [directory] [passes]
+ * </pre>
+ */
+public final class AutoParserBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        File directory = new File(args.length > 0 ? args[0] : "autonomous");
+        int passes = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+        List<File> files = new ArrayList<>();
+        File[] listed = directory.listFiles();
+        if (listed == null) {
+            System.err.println(directory + " is not a directory");
+            System.exit(1);
+        }
+        for (File file : listed) {
+            if (!file.isFile() || !file.getName().endsWith(".txt")) {
+                continue;
+            }
+            try {
+                parse(file);
+                files.add(file);
+            } catch (AutoSyntaxException ex) {
+                System.out.println("Skipping " + file.getName() + ": " + ex.getMessage());
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("No autonomous files in " + directory);
+            System.exit(1);
+        }
+
+        // the first runs warm up the JIT and are thrown away
+        run(files, passes, false);
+        run(files, passes, true);
+        long before = run(files, passes, true);
+        long after = run(files, passes, false);
+
+        long perFileBefore = before / ((long) passes * files.size());
+        long perFileAfter = after / ((long) passes * files.size());
+        System.out.println(files.size() + " files, " + passes + " passes");
+        System.out.printf("before: %8.2f us per file%n", perFileBefore / 1e3);
+        System.out.printf("after:  %8.2f us per file%n", perFileAfter / 1e3);
+        System.out.printf("speedup: %.1fx%n", (double) perFileBefore / Math.max(1, perFileAfter));
+    }
+
+    // returns the total time in nanoseconds
+    private static long run(List<File> files, int passes, boolean legacy) throws IOException {
+        int sink = 0;
+        long start = System.nanoTime();
+        for (int pass = 0; pass < passes; pass++) {
+            for (File file : files) {
+                sink += legacy ? legacyParse(file) : parse(file);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == 42) {
+            // keeps the results alive so the work can't be optimized away
+            System.out.print("");
+        }
+        return elapsed;
+    }
+
+    private static int parse(File file) throws IOException {
+        String contents = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        List<Statement> statements = new ArrayList<>();
+        Map<String, Argument> variables = new HashMap<>();
+        new AutoParser(contents).parse(statements, variables);
+
+        int count = 0;
+        for (Statement statement : statements) {
+            for (Argument argument : statement.arguments) {
+                Argument value = variables.get(argument.text.toLowerCase());
+                count += (value == null ? argument : value).text.length();
+            }
+        }
+        return count;
+    }
+
+    // what AutoFile did before the parser was added
+    private static int legacyParse(File file) throws IOException {
+        String contents;
+        try (FileInputStream fi = new FileInputStream(file)) {
+            StringBuilder builder = new StringBuilder();
+            int ch;
+            while ((ch = fi.read()) != -1) {
+                builder.append((char) ch);
+            }
+            contents = builder.toString();
+        }
+
+        Map<String, String> variables = new HashMap<>();
+        List<String> entries = new ArrayList<>();
+        for (String line : contents.split("\n")) {
+            if (line.trim().length() == 0) {
+                continue;
+            } else if (line.contains("=")) {
+                String key = line.substring(0, line.indexOf('=') + 1).trim().toLowerCase();
+                String value = line.substring(line.indexOf('=') + 1).trim().toLowerCase();
+                variables.put(key, value);
+            } else {
+                String value = line.substring(line.indexOf('(') + 1, line.lastIndexOf(')')).trim().toLowerCase();
+                entries.add(value);
+            }
+        }
+
+        int count = 0;
+        for (String value : entries) {
+            for (Map.Entry<String, String> variable : variables.entrySet()) {
+                if (value.contains(variable.getKey())) {
+                    value = value.replace(variable.getKey(), variable.getValue());
+                }
+            }
+            for (String argument : value.split(",")) {
+                count += argument.trim().length();
+            }
+        }
+        return count;
+    }
+}
@@ -3,12 +3,23 @@ package ca.fourthreethreefour.settings;
 import java.io.File;
 
 public interface Settings {
-    SettingsFile settingsFile = SettingsFile.findFile(new File("/settings.txt"));
+    File SETTINGS_PATH = new File("/settings.txt");
+    SettingsFile settingsFile = SettingsFile.findFile(SETTINGS_PATH);
 
     String ROBOT_TYPE = settingsFile.getProperty("ROBOT_TYPE", "");
     boolean AUTO_ALLIANCE_INDEPENDENT = settingsFile.getBooleanProperty("AUTO_ALLIANCE_INDEPENDENT", false);
     String AUTO_TYPE = settingsFile.getProperty("AUTO_TYPE", "");
+    String AUTO_DIRECTORY = settingsFile.getProperty("AUTO_DIRECTORY", ".");
     boolean LOGGING_ENABLED = settingsFile.getBooleanProperty("LOGGING_ENABLED", false);
+    String LOGGING_LEVEL = settingsFile.getProperty("LOGGING_LEVEL", "DEBUG");
+    // seconds between values logged with the same key
+    double LOGGING_INTERVAL = settingsFile.getDoubleProperty("LOGGING_INTERVAL", 0.1);
+    boolean TELEMETRY_ENABLED = settingsFile.getBooleanProperty("TELEMETRY_ENABLED", true);
+    String TELEMETRY_DIRECTORY = settingsFile.getProperty("TELEMETRY_DIRECTORY", ".");
+    // 20ms loops, enough for a 20 minute session
+    int TELEMETRY_RECORDS = settingsFile.getIntProperty("TELEMETRY_RECORDS", 60000);
+    // files kept from past boots, oldest are deleted (about 5MB each)
+    int TELEMETRY_FILES = settingsFile.getIntProperty("TELEMETRY_FILES", 5);
     
     boolean MANUAL_CONTROL = settingsFile.getBooleanProperty("MANUAL_CONTROL", true);
     double DRIVE_COMPENSATION = settingsFile.getDoubleProperty("DRIVE_COMPENSATION", 0.0);
@@ -0,0 +1,118 @@
+package ca.fourthreethreefour.settings;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Times parsing a settings file and looking up every key in it, the way
+ * SettingsFile used to (stringPropertyNames() copy, then parse the text) and
+ * through a SettingsSnapshot. Plain Properties stand in for SettingsFile so
+ * this runs off the robot:
+ *
+ * <pre>
+ * java ca.fourthreethreefour.settings.SettingsBenchmark [file] [passes]
+ * </pre>
+ */
+public final class SettingsBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        File file = new File(args.length > 0 ? args[0] : "settings.txt");
+        int passes = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        if (!file.isFile()) {
+            System.err.println(file + " is not a file");
+            System.exit(1);
+        }
+
+        Properties properties = load(file);
+        SettingsSnapshot snapshot = new SettingsSnapshot(properties);
+        List<String> numbers = new ArrayList<>();
+        List<String> others = new ArrayList<>();
+        for (String key : properties.stringPropertyNames()) {
+            try {
+                snapshot.getDouble(key, 0);
+                numbers.add(key);
+            } catch (NumberFormatException e) {
+                others.add(key);
+            }
+        }
+
+        // the first runs warm up the JIT and are thrown away
+        parse(file, passes / 10, false);
+        parse(file, passes / 10, true);
+        lookup(properties, snapshot, numbers, others, passes, false);
+        lookup(properties, snapshot, numbers, others, passes, true);
+
+        long parseBefore = parse(file, passes / 10, true) / (passes / 10);
+        long parseAfter = parse(file, passes / 10, false) / (passes / 10);
+        int keys = numbers.size() + others.size();
+        long lookupBefore = lookup(properties, snapshot, numbers, others, passes, true) / ((long) passes * keys);
+        long lookupAfter = lookup(properties, snapshot, numbers, others, passes, false) / ((long) passes * keys);
+
+        System.out.println(file + ": " + keys + " keys (" + numbers.size() + " numeric)");
+        System.out.printf("parse  before: %8.2f us   after: %8.2f us%n", parseBefore / 1e3, parseAfter / 1e3);
+        System.out.printf("lookup before: %8.1f ns   after: %8.1f ns   speedup: %.1fx%n",
+                (double) lookupBefore, (double) lookupAfter, (double) lookupBefore / Math.max(1, lookupAfter));
+    }
+
+    private static Properties load(File file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+        }
+        return properties;
+    }
+
+    // returns the total time in nanoseconds
+    private static long parse(File file, int passes, boolean legacy) throws IOException {
+        int sink = 0;
+        long start = System.nanoTime();
+        for (int pass = 0; pass < passes; pass++) {
+            sink += legacy ? load(file).size() : SettingsSnapshot.load(file).asMap().size();
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == 42) {
+            // keeps the results alive so the work can't be optimized away
+            System.out.print("");
+        }
+        return elapsed;
+    }
+
+    // returns the total time in nanoseconds
+    private static long lookup(Properties properties, SettingsSnapshot snapshot, List<String> numbers,
+            List<String> others, int passes, boolean legacy) {
+        double sink = 0;
+        long start = System.nanoTime();
+        for (int pass = 0; pass < passes; pass++) {
+            for (int i = 0; i < numbers.size(); i++) {
+                String key = numbers.get(i);
+                if (legacy) {
+                    if (properties.stringPropertyNames().contains(key)) {
+                        sink += Double.parseDouble(properties.getProperty(key));
+                    }
+                } else {
+                    sink += snapshot.getDouble(key, 0);
+                }
+            }
+            for (int i = 0; i < others.size(); i++) {
+                String key = others.get(i);
+                if (legacy) {
+                    if (properties.stringPropertyNames().contains(key)) {
+                        sink += Boolean.parseBoolean(properties.getProperty(key)) ? 1 : 0;
+                    }
+                } else {
+                    sink += snapshot.getBoolean(key, false) ? 1 : 0;
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == 42) {
+            System.out.print("");
+        }
+        return elapsed;
+    }
+}
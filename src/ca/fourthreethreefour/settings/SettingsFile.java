@@ -40,7 +40,7 @@ public class SettingsFile extends Properties {
     }
 
     int getIntProperty(String key, int defaultValue) {
-        if (stringPropertyNames().contains(key)) {
+        if (containsKey(key)) {
             return Integer.parseInt(getProperty(key));
         } else {
             Logger.getLogger(SettingsFile.class)
@@ -50,7 +50,7 @@ public class SettingsFile extends Properties {
     }
 
     double getDoubleProperty(String key, double defaultValue) {
-        if (stringPropertyNames().contains(key)) {
+        if (containsKey(key)) {
             return Double.parseDouble(getProperty(key));
         } else {
             Logger.getLogger(SettingsFile.class)
@@ -60,7 +60,7 @@ public class SettingsFile extends Properties {
     }
 
     boolean getBooleanProperty(String key, boolean defaultValue) {
-        if (stringPropertyNames().contains(key)) {
+        if (containsKey(key)) {
             return Boolean.parseBoolean(getProperty(key));
         } else {
             Logger.getLogger(SettingsFile.class)
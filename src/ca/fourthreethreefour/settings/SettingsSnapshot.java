@@ -0,0 +1,152 @@
+package ca.fourthreethreefour.settings;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import edu.first.util.log.Logger;
+
+/**
+ * Settings parsed once into typed values. Never changes after it is made, so it
+ * can be shared between threads. {@link SettingsWatcher} swaps in a new one
+ * when the file changes.
+ *
+ * Like {@link SettingsFile}, a missing key is logged and gives the default,
+ * and a value that isn't a valid number (or int) throws a
+ * {@link NumberFormatException}.
+ */
+public final class SettingsSnapshot {
+
+    private final Map<String, Value> values;
+    private final Map<String, String> text;
+
+    private static final class Value {
+        final String text;
+        final double number;
+        final boolean isNumber;
+        final int integer;
+        final boolean isInteger;
+        final boolean bool;
+
+        Value(String text) {
+            this.text = text;
+            double parsed;
+            boolean valid;
+            try {
+                parsed = Double.parseDouble(text);
+                valid = true;
+            } catch (NumberFormatException e) {
+                parsed = Double.NaN;
+                valid = false;
+            }
+            this.number = parsed;
+            this.isNumber = valid;
+            // parsed the same way as SettingsFile, so 1.5 isn't an int (tried
+            // only for whole numbers, since a failed parse is slow)
+            int parsedInt = 0;
+            boolean validInt = false;
+            if (valid && parsed == Math.rint(parsed)) {
+                try {
+                    parsedInt = Integer.parseInt(text);
+                    validInt = true;
+                } catch (NumberFormatException e) {
+                    // like 1.0 or 1e3
+                }
+            }
+            this.integer = parsedInt;
+            this.isInteger = validInt;
+            this.bool = Boolean.parseBoolean(text);
+        }
+    }
+
+    public static SettingsSnapshot load(File file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+        }
+        return new SettingsSnapshot(properties);
+    }
+
+    public SettingsSnapshot(Properties properties) {
+        Map<String, Value> values = new HashMap<>();
+        Map<String, String> text = new HashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            String value = properties.getProperty(key).trim();
+            values.put(key, new Value(value));
+            text.put(key, value);
+        }
+        this.values = values;
+        this.text = Collections.unmodifiableMap(text);
+    }
+
+    public boolean contains(String key) {
+        return values.containsKey(key);
+    }
+
+    public String getString(String key, String defaultValue) {
+        Value value = get(key, defaultValue);
+        return value == null ? defaultValue : value.text;
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        Value value = get(key, defaultValue);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (!value.isNumber) {
+            throw new NumberFormatException(key + " is not a number: \"" + value.text + "\"");
+        }
+        return value.number;
+    }
+
+    public int getInt(String key, int defaultValue) {
+        Value value = get(key, defaultValue);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (!value.isInteger) {
+            throw new NumberFormatException(key + " is not an int: \"" + value.text + "\"");
+        }
+        return value.integer;
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        Value value = get(key, defaultValue);
+        return value == null ? defaultValue : value.bool;
+    }
+
+    private Value get(String key, Object defaultValue) {
+        Value value = values.get(key);
+        if (value == null) {
+            Logger.getLogger(SettingsSnapshot.class)
+                    .info(key + " not found in settings file, using default (" + defaultValue + ")");
+        }
+        return value;
+    }
+
+    // keys that were numbers (or ints) in old but aren't anymore, which is
+    // almost always a typo
+    List<String> brokenNumbers(SettingsSnapshot old) {
+        List<String> broken = new ArrayList<>();
+        for (Map.Entry<String, Value> e : old.values.entrySet()) {
+            Value value = values.get(e.getKey());
+            if (value != null && ((e.getValue().isNumber && !value.isNumber)
+                    || (e.getValue().isInteger && !value.isInteger))) {
+                broken.add(e.getKey() + " = " + value.text);
+            }
+        }
+        return broken;
+    }
+
+    // raw key/value pairs, used to tell whether a reload changed anything
+    public Map<String, String> asMap() {
+        return text;
+    }
+}
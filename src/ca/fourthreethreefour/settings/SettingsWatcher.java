@@ -0,0 +1,145 @@
+package ca.fourthreethreefour.settings;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import edu.first.util.log.Logger;
+
+/**
+ * Keeps the latest {@link SettingsSnapshot} of the settings file. A background
+ * thread watches the file, and when it changes, parses it and swaps in the new
+ * snapshot. Subscribers are then called with it (on the watcher thread).
+ *
+ * A reload where a number was changed to something that isn't one (like
+ * {@code TURN_P = 0..5}) is rejected, and the old settings are kept. Keys that
+ * were removed are logged, since their compiled in defaults are used.
+ */
+public final class SettingsWatcher {
+
+    // editors often write a file in a few steps, so wait for them to finish
+    private static final long SETTLE_TIME = 200;
+    private final File file;
+    private final AtomicReference<SettingsSnapshot> current;
+    private final CopyOnWriteArrayList<Consumer<SettingsSnapshot>> subscribers = new CopyOnWriteArrayList<>();
+    private Thread thread;
+
+    public SettingsWatcher(File file) {
+        this.file = file.getAbsoluteFile();
+        SettingsSnapshot initial;
+        try {
+            initial = SettingsSnapshot.load(this.file);
+        } catch (IOException e) {
+            Logger.getLogger(this).warn("Could not read " + file + ", using defaults");
+            initial = new SettingsSnapshot(new Properties());
+        }
+        current = new AtomicReference<>(initial);
+    }
+
+    public SettingsSnapshot get() {
+        return current.get();
+    }
+
+    // called right away with the current snapshot, then after every change
+    public void subscribe(Consumer<SettingsSnapshot> subscriber) {
+        subscribers.add(subscriber);
+        subscriber.accept(current.get());
+    }
+
+    public void unsubscribe(Consumer<SettingsSnapshot> subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        WatchService watcher;
+        try {
+            watcher = FileSystems.getDefault().newWatchService();
+            file.getParentFile().toPath().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            Logger.getLogger(this).error("Could not watch " + file + ", settings won't reload", e);
+            return;
+        }
+        thread = new Thread(() -> watch(watcher), "settings-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void watch(WatchService watcher) {
+        Path name = file.toPath().getFileName();
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    changed |= name.equals(event.context());
+                }
+                key.reset();
+
+                if (changed) {
+                    Thread.sleep(SETTLE_TIME);
+                    // changes while settling are covered by this reload
+                    WatchKey extra;
+                    while ((extra = watcher.poll()) != null) {
+                        extra.pollEvents();
+                        extra.reset();
+                    }
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Logger.getLogger(this).info("Stopped watching " + file);
+        }
+    }
+
+    public synchronized void reload() {
+        SettingsSnapshot loaded;
+        try {
+            loaded = SettingsSnapshot.load(file);
+        } catch (IOException e) {
+            Logger.getLogger(this).error("Could not reload " + file + ", keeping old settings", e);
+            return;
+        }
+        SettingsSnapshot old = current.get();
+        if (old.asMap().equals(loaded.asMap())) {
+            return;
+        }
+        List<String> broken = loaded.brokenNumbers(old);
+        if (!broken.isEmpty()) {
+            for (String setting : broken) {
+                Logger.getLogger(this).warn("Not a valid number: " + setting);
+            }
+            Logger.getLogger(this).warn("Could not reload " + file + ", keeping old settings");
+            return;
+        }
+        for (String key : old.asMap().keySet()) {
+            if (!loaded.contains(key)) {
+                Logger.getLogger(this).warn(key + " was removed from " + file + ", using its default");
+            }
+        }
+        current.set(loaded);
+
+        Logger.getLogger(this).info("Reloaded " + file);
+        for (Consumer<SettingsSnapshot> subscriber : subscribers) {
+            try {
+                subscriber.accept(loaded);
+            } catch (RuntimeException e) {
+                Logger.getLogger(this).error("Settings subscriber failed", e);
+            }
+        }
+    }
+}
@@ -29,8 +29,10 @@ public interface TunedDrive extends Drive {
 
         @Override
         public double get() {
-            Logging.logf("left %f right %f\n", left.get(), right.get());
-            return right.get() + left.get();
+            double l = left.get(), r = right.get();
+            Logging.log("left", l);
+            Logging.log("right", r);
+            return r + l;
         }
     }
 
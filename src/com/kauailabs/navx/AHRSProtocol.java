@@ -857,21 +857,37 @@ public class AHRSProtocol extends IMUProtocol {
         encodeBinaryUint32(int_val, buffer, offset);
     }
     static final int CRC7_POLY = 0x0091;
+    
+    /* CRC of every possible byte value, so that getCRC() processes a  */
+    /* whole byte per lookup instead of one bit per iteration.         */
+    private static final byte[] CRC7_TABLE = new byte[256];
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i;
+            for (int j = 0; j < 8; j++) {
+                if ((crc & 0x0001)!=0) {
+                    crc ^= CRC7_POLY;
+                }
+                crc >>= 1;
+            }
+            CRC7_TABLE[i] = (byte)crc;
+        }
+    }
 
     public static byte getCRC(byte[] buffer, int length)
     {
-      int i, j, crc = 0;
+        return getCRC(buffer, 0, length);
+    }
+
+    /* Computes the CRC of buffer[offset] to buffer[offset+length-1]. */
+    public static byte getCRC(byte[] buffer, int offset, int length)
+    {
+      int crc = 0;
+      int end = offset + length;
 
-      for (i = 0; i < length; i++)
+      for (int i = offset; i < end; i++)
       {
-        crc ^= (int)(0x00ff & buffer[i]);
-        for (j = 0; j < 8; j++)
-        {
-          if ((crc & 0x0001)!=0) {
-              crc ^= CRC7_POLY;
-          }
-          crc >>= 1;
-        }
+        crc = CRC7_TABLE[(crc ^ buffer[i]) & 0x00ff] & 0x00ff;
       }
       return (byte)crc;
     }
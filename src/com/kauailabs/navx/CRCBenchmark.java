@@ -0,0 +1,97 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) Kauai Labs 2015. All Rights Reserved.                        */
+/*                                                                            */
+/* Created in support of Team 2465 (Kauaibots).  Go Purple Wave!              */
+/*                                                                            */
+/* Open Source Software - may be modified and shared by FRC teams. Any        */
+/* modifications to this code must be accompanied by the \License.txt file    */
+/* in the root directory of the project.                                      */
+/*----------------------------------------------------------------------------*/
+package com.kauailabs.navx;
+
+import java.util.Random;
+
+/**
+ * Compares AHRSProtocol.getCRC (one table lookup per byte) with the bit by
+ * bit CRC7 it replaced.  Random buffers and slices are checked to give the
+ * same CRC both ways, then the throughput of each is timed for a few buffer
+ * lengths, including the longest binary packet:
+ *
+ *     java com.kauailabs.navx.CRCBenchmark [megabytes per case]
+ *
+ * Exits with status 1 if any CRC differs.
+ */
+class CRCBenchmark {
+
+    static final int VERIFIED_BUFFERS = 200000;
+    static final int[] LENGTHS = {8, AHRSProtocol.AHRSPOS_TS_UPDATE_MESSAGE_LENGTH, 1024};
+
+    public static void main(String[] args) {
+        int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        Random random = new Random(2465);
+
+        byte[] buffer = new byte[1024];
+        for ( int i = 0; i < VERIFIED_BUFFERS; i++ ) {
+            random.nextBytes(buffer);
+            int offset = random.nextInt(buffer.length);
+            int length = random.nextInt(buffer.length - offset + 1);
+            byte[] slice = new byte[length];
+            System.arraycopy(buffer, offset, slice, 0, length);
+            byte expected = bitwiseCRC(slice, length);
+            if ( AHRSProtocol.getCRC(buffer, offset, length) != expected ||
+                 AHRSProtocol.getCRC(slice, length) != expected ) {
+                System.out.println("FAIL: CRC differs for offset " + offset + ", length " + length);
+                System.exit(1);
+            }
+        }
+        System.out.println(VERIFIED_BUFFERS + " random slices give the same CRC both ways");
+
+        System.out.println("length   bitwise MB/s   table MB/s   speedup");
+        for ( int length : LENGTHS ) {
+            byte[] data = new byte[length];
+            random.nextBytes(data);
+            int passes = (int)((megabytes * 1000000L) / length);
+            /* Warm up, so the JIT has compiled both. */
+            time(data, passes / 10, false);
+            time(data, passes / 10, true);
+            double bitwise = time(data, passes, false);
+            double table = time(data, passes, true);
+            System.out.printf("%6d %14.1f %12.1f %8.1fx%n", length, bitwise, table, table / bitwise);
+        }
+    }
+
+    /* Returns the throughput in megabytes per second. */
+    static double time(byte[] data, int passes, boolean table) {
+        int sink = 0;
+        long start = System.nanoTime();
+        for ( int i = 0; i < passes; i++ ) {
+            /* Vary the data, so the CRC can't be hoisted out of the loop. */
+            data[0] = (byte)i;
+            sink += table ? AHRSProtocol.getCRC(data, data.length) : bitwiseCRC(data, data.length);
+        }
+        long elapsed = System.nanoTime() - start;
+        if ( sink == 42 ) {
+            /* Keeps the results alive, so the work isn't optimized away. */
+            System.out.print("");
+        }
+        return ((double)passes * data.length / 1e6) / (elapsed / 1e9);
+    }
+
+    /* The implementation getCRC had before the table was added. */
+    static byte bitwiseCRC(byte[] buffer, int length) {
+        int i, j, crc = 0;
+
+        for (i = 0; i < length; i++)
+        {
+            crc ^= (int)(0x00ff & buffer[i]);
+            for (j = 0; j < 8; j++)
+            {
+                if ((crc & 0x0001)!=0) {
+                    crc ^= AHRSProtocol.CRC7_POLY;
+                }
+                crc >>= 1;
+            }
+        }
+        return (byte)crc;
+    }
+}
@@ -141,8 +141,12 @@ public class AHRS extends SensorBase implements PIDSource, LiveWindowSendable {
     volatile float      quaternionZ;       
     
     /* Integrated Data */
-    float velocity[] = new float[3];
-    float displacement[] = new float[3];
+    volatile float      velocity_x;
+    volatile float      velocity_y;
+    volatile float      velocity_z;
+    volatile float      displacement_x;
+    volatile float      displacement_y;
+    volatile float      displacement_z;
     
     
     /* Raw Data */
@@ -172,13 +176,19 @@ public class AHRS extends SensorBase implements PIDSource, LiveWindowSendable {
     volatile byte       fw_ver_major;
     volatile byte       fw_ver_minor;
     
-    long                last_sensor_timestamp;
-    double              last_update_time;
+    volatile long       last_sensor_timestamp;
+    volatile double     last_update_time;
+
+    /* Odd while the IO thread is updating the processed data; see snapshot(). */
+    volatile long       update_sequence;
+    /* Processed data updates received; raw data updates aren't counted. */
+    volatile long       processed_update_count;
 
     ITable              m_table;
     
     InertialDataIntegrator  integrator;
     ContinuousAngleTracker  yaw_angle_tracker;
+    SampleHistory           sample_history;
     OffsetTracker           yaw_offset_tracker;
     IIOProvider             io;
 
@@ -188,9 +198,7 @@ public class AHRS extends SensorBase implements PIDSource, LiveWindowSendable {
     
     PIDSourceType			pid_source_type = PIDSourceType.kDisplacement;
     
-    private ITimestampedDataSubscriber callbacks[];
-    private Object callback_contexts[];
-    private final int MAX_NUM_CALLBACKS = 3;
+    TimestampedDataDispatcher callbacks;
     
     /***********************************************************/
     /* Public Interface Implementation                         */
@@ -325,6 +333,27 @@ public class AHRS extends SensorBase implements PIDSource, LiveWindowSendable {
         this(serial_port_id, SerialDataType.kProcessedData, NAVX_DEFAULT_UPDATE_RATE_HZ);
     }
     
+    /**
+     * Constructs the AHRS class using any register access implementation,
+     * e.g. RegisterIO_Replay to play back a recording without a device.
+     */
+    AHRS(IRegisterIO io_provider, byte update_rate_hz) {
+        commonInit(update_rate_hz);
+        io = new RegisterIO(io_provider, update_rate_hz, io_complete_sink, board_capabilities);
+        io_thread.start();
+    }
+
+    /**
+     * Constructs the AHRS class using any serial port implementation, e.g.
+     * SerialPort_Replay to play back a recording without a device.
+     */
+    AHRS(ISerialPort serial_port, SerialDataType data_type, byte update_rate_hz) {
+        commonInit(update_rate_hz);
+        boolean processed_data = (data_type == SerialDataType.kProcessedData);
+        io = new SerialIO(() -> serial_port, false, update_rate_hz, processed_data, io_complete_sink, board_capabilities);
+        io_thread.start();
+    }
+
     /**
      * Returns the current pitch value (in degrees, from -180 to 180)
      * reported by the sensor.  Pitch is a measure of rotation around
@@ -505,6 +534,28 @@ public class AHRS extends SensorBase implements PIDSource, LiveWindowSendable {
     public double getUpdateCount() {
         return io.getUpdateCount();
     }
+
+    /**
+     * Returns the number of times the sensor was read before it had
+     * produced a new sample, i.e. the read returned the same sensor
+     * timestamp as the previous one.  A small, slowly increasing count is
+     * normal, since the read timing adapts to the sensor's update timing.
+     * Only counted for the Register-based IO methods (SPI, I2C).
+     * @return The number of reads which returned no new data.
+     */
+    public long getDuplicateReadCount() {
+        return io.getDuplicateReadCount();
+    }
+
+    /**
+     * Returns the number of samples produced by the sensor which were
+     * never read, based upon gaps in the sensor timestamps.  Only counted
+     * for the Register-based IO methods (SPI, I2C).
+     * @return The number of samples which were missed.
+     */
+    public long getMissedSampleCount() {
+        return io.getMissedSampleCount();
+    }
     
     /**
      * Returns the sensor timestamp corresponding to the
@@ -795,7 +846,7 @@ public class AHRS extends SensorBase implements PIDSource, LiveWindowSendable {
      * @return Current Velocity (in meters/squared).
      */
     public float getVelocityX() {
-    	return (board_capabilities.isDisplacementSupported() ? velocity[0] : integrator.getVelocityX());
+    	return (board_capabilities.isDisplacementSupported() ? velocity_x : integrator.getVelocityX());
     }
     
     /**
@@ -807,7 +858,7 @@ public class AHRS extends SensorBase implements PIDSource, LiveWindowSendable {
      * @return Current Velocity (in meters/squared).
      */
     public float getVelocityY() {
-        return (board_capabilities.isDisplacementSupported() ? velocity[1] : integrator.getVelocityY());
+        return (board_capabilities.isDisplacementSupported() ? velocity_y : integrator.getVelocityY());
     }
     
     /**
@@ -819,7 +870,7 @@ public class AHRS extends SensorBase implements PIDSource, LiveWindowSendable {
      * @return Current Velocity (in meters/squared).
      */
     public float getVelocityZ() {
-        return (board_capabilities.isDisplacementSupported() ? velocity[2] : 0.f);
+        return (board_capabilities.isDisplacementSupported() ? velocity_z : 0.f);
     }
 
     /**
@@ -833,7 +884,7 @@ public class AHRS extends SensorBase implements PIDSource, LiveWindowSendable {
      * @return Displacement since last reset (in meters).
      */
     public float getDisplacementX() {
-        return (board_capabilities.isDisplacementSupported() ? displacement[0] : integrator.getDisplacementX());
+        return (board_capabilities.isDisplacementSupported() ? displacement_x : integrator.getDisplacementX());
     }
     
     /**
@@ -847,7 +898,7 @@ public class AHRS extends SensorBase implements PIDSource, LiveWindowSendable {
      * @return Displacement since last reset (in meters).
      */
     public float getDisplacementY() {
-        return (board_capabilities.isDisplacementSupported() ? displacement[1] : integrator.getDisplacementY());
+        return (board_capabilities.isDisplacementSupported() ? displacement_y : integrator.getDisplacementY());
     }
     
     /**
@@ -861,7 +912,7 @@ public class AHRS extends SensorBase implements PIDSource, LiveWindowSendable {
      * @return Displacement since last reset (in meters).
      */
     public float getDisplacementZ() {
-        return (board_capabilities.isDisplacementSupported() ? displacement[2] : 0.f);
+        return (board_capabilities.isDisplacementSupported() ? displacement_z : 0.f);
     }
     
     /**
@@ -871,21 +922,39 @@ public class AHRS extends SensorBase implements PIDSource, LiveWindowSendable {
      *<p>
      * Note that this callback will occur within the context of the
      * device IO thread, which is not the same thread context the
-     * caller typically executes in.
+     * caller typically executes in.  Since the next sensor read waits
+     * for the callback to return, callbacks which do more than a small
+     * amount of work should be registered with a queue instead.
+     *<p>
+     * @return false if the callback is already registered.
      */
     public boolean registerCallback( ITimestampedDataSubscriber callback, Object callback_context) {
-        boolean registered = false;
-        for ( int i = 0; i < this.callbacks.length; i++ ) {
-            if (this.callbacks[i] == null) {
-                this.callbacks[i] = callback;
-                this.callback_contexts[i] = callback_context;
-                registered = true;
-                break;
-            }
-        }
-        return registered;
+        return callbacks.register(callback, callback_context, 0);
     }    
 
+    /**
+     * Registers a callback interface which is called back on a separate
+     * callback thread, rather than the device IO thread.
+     *<p>
+     * Each new sample is copied into a queue of up to queue_depth samples
+     * waiting for this callback.  If the callback falls behind far enough
+     * for the queue to fill up, new samples are dropped until it catches
+     * up; see getCallbackDroppedCount() and getCallbackLag().
+     *<p>
+     * Note that callbacks registered this way share one callback thread,
+     * so a slow callback delays the others, but never the device IO thread.
+     *<p>
+     * @param queue_depth Maximum number of samples waiting for the callback.
+     * If 0, the callback is invoked directly on the device IO thread.
+     * @return false if the callback is already registered.
+     */
+    public boolean registerCallback( ITimestampedDataSubscriber callback, Object callback_context,
+            int queue_depth) {
+        if (queue_depth < 0) {
+            throw new IllegalArgumentException("queue_depth must not be negative");
+        }
+        return callbacks.register(callback, callback_context, queue_depth);
+    }
 
     /**
      * Deregisters a previously registered callback interface.
@@ -896,16 +965,42 @@ public class AHRS extends SensorBase implements PIDSource, LiveWindowSendable {
      * to be accessed when no longer necessary.
      */
     public boolean deregisterCallback( ITimestampedDataSubscriber callback ) {
-        boolean deregistered = false;
-        for ( int i = 0; i < this.callbacks.length; i++ ) {
-            if (this.callbacks[i] == callback) {
-                this.callbacks[i] = null;
-                deregistered = true;
-                break;
-            }
-        }
-        return deregistered;
+        return callbacks.deregister(callback);
     }    
+
+    /**
+     * Returns the number of samples which were not delivered to a queued
+     * callback because its queue was full.
+     *<p>
+     * @return The number of dropped samples, or 0 if the callback is not registered.
+     */
+    public long getCallbackDroppedCount( ITimestampedDataSubscriber callback ) {
+        TimestampedDataDispatcher.Subscription subscription = callbacks.find(callback);
+        return (subscription != null) ? subscription.dropped : 0;
+    }
+
+    /**
+     * Returns the time between the most recent sample delivered to a queued
+     * callback being received from the sensor and being delivered to the
+     * callback.  Callbacks invoked on the device IO thread have no lag.
+     *<p>
+     * @return The most recent lag (in milliseconds), or 0 if the callback is not registered.
+     */
+    public double getCallbackLag( ITimestampedDataSubscriber callback ) {
+        TimestampedDataDispatcher.Subscription subscription = callbacks.find(callback);
+        return (subscription != null) ? subscription.last_lag_ms : 0;
+    }
+
+    /**
+     * Returns the largest lag (see getCallbackLag()) since the callback was
+     * registered.
+     *<p>
+     * @return The largest lag (in milliseconds), or 0 if the callback is not registered.
+     */
+    public double getCallbackMaxLag( ITimestampedDataSubscriber callback ) {
+        TimestampedDataDispatcher.Subscription subscription = callbacks.find(callback);
+        return (subscription != null) ? subscription.max_lag_ms : 0;
+    }
     
     /***********************************************************/
     /* Internal Implementation                                  */
@@ -919,8 +1014,8 @@ public class AHRS extends SensorBase implements PIDSource, LiveWindowSendable {
         integrator = new InertialDataIntegrator();
         yaw_offset_tracker = new OffsetTracker(YAW_HISTORY_LENGTH);
         yaw_angle_tracker = new ContinuousAngleTracker();
-        this.callbacks = new ITimestampedDataSubscriber[MAX_NUM_CALLBACKS];
-        this.callback_contexts = new Object[MAX_NUM_CALLBACKS];
+        sample_history = new SampleHistory();
+        this.callbacks = new TimestampedDataDispatcher();
     }
 
     /***********************************************************/
@@ -982,6 +1077,105 @@ public class AHRS extends SensorBase implements PIDSource, LiveWindowSendable {
         return yaw_angle_tracker.getRate();
     }
 
+    /**
+     * Copies the current processed data into target, such that every value
+     * comes from the same sensor update.
+     *<p>
+     * Reading several values with the individual get methods (e.g., the four
+     * quaternion values, or velocity X and Y) may return a mix of two updates
+     * if new data arrives in between.  This method instead retries the copy
+     * if an update occurred while copying, without locking the device IO
+     * thread.  The target object can be reused to avoid allocation.
+     *<p>
+     * @param target The object to fill in; if null, a new one is created.
+     * @return The filled-in target.
+     */
+    public AHRSSnapshot snapshot(AHRSSnapshot target) {
+        if (target == null) {
+            target = new AHRSSnapshot();
+        }
+        boolean displacement_supported = board_capabilities.isDisplacementSupported();
+        long sequence;
+        do {
+            sequence = update_sequence;
+            if ((sequence & 1) != 0) {
+                /* An update is being written */
+                Thread.yield();
+                continue;
+            }
+            target.fpga_timestamp             = last_update_time;
+            target.sensor_timestamp           = last_sensor_timestamp;
+            target.yaw                        = getYaw();
+            target.pitch                      = pitch;
+            target.roll                       = roll;
+            target.compass_heading            = compass_heading;
+            target.fused_heading              = fused_heading;
+            target.angle                      = getAngle();
+            target.world_linear_accel_x       = world_linear_accel_x;
+            target.world_linear_accel_y       = world_linear_accel_y;
+            target.world_linear_accel_z       = world_linear_accel_z;
+            target.velocity_x                 = displacement_supported ? velocity_x : integrator.getVelocityX();
+            target.velocity_y                 = displacement_supported ? velocity_y : integrator.getVelocityY();
+            target.velocity_z                 = displacement_supported ? velocity_z : 0.f;
+            target.displacement_x             = displacement_supported ? displacement_x : integrator.getDisplacementX();
+            target.displacement_y             = displacement_supported ? displacement_y : integrator.getDisplacementY();
+            target.displacement_z             = displacement_supported ? displacement_z : 0.f;
+            target.quaternion_w               = quaternionW;
+            target.quaternion_x               = quaternionX;
+            target.quaternion_y               = quaternionY;
+            target.quaternion_z               = quaternionZ;
+            target.temp_c                     = mpu_temp_c;
+            target.altitude                   = altitude;
+            target.barometric_pressure        = baro_pressure;
+            target.is_moving                  = is_moving;
+            target.is_rotating                = is_rotating;
+            target.altitude_valid             = altitude_valid;
+            target.is_magnetometer_calibrated = is_magnetometer_calibrated;
+            target.magnetic_disturbance       = magnetic_disturbance;
+            target.update_count               = processed_update_count;
+        } while (((sequence & 1) != 0) || (update_sequence != sequence));
+        return target;
+    }
+
+    /**
+     * Returns the total accumulated yaw angle (as returned by getAngle()) at
+     * a given time in the recent past, interpolated between the two samples
+     * received on either side of that time.
+     *<p>
+     * Control loops which do not run in phase with the sensor update rate
+     * can use this to read the heading at the time their other inputs were
+     * sampled, rather than whichever sample happens to be the newest.
+     *<p>
+     * Times newer than the latest sample return the latest angle, and times
+     * older than the sample history return the oldest angle in the history.
+     *<p>
+     * @param fpga_timestamp FPGA time, in seconds (see Timer.getFPGATimestamp())
+     * @return The total accumulated yaw angle in degrees at the given time.
+     */
+    public double getAngleAt(double fpga_timestamp) {
+        double angle = sample_history.getAngleAt(fpga_timestamp);
+        return Double.isNaN(angle) ? getAngle() : angle;
+    }
+
+    /**
+     * Copies the samples received after a given time from the sample
+     * history, oldest first.  The history holds roughly the last second of
+     * samples.
+     *<p>
+     * If more samples are available than fit in the array, the oldest are
+     * returned; invoke again with the fpga_timestamp of the last sample
+     * returned to retrieve the rest.  Null entries in the array are filled
+     * with new objects; existing entries are overwritten, so the same array
+     * can be reused without allocation.
+     *<p>
+     * @param fpga_timestamp FPGA time, in seconds (see Timer.getFPGATimestamp())
+     * @param samples Array to copy samples into.
+     * @return The number of samples copied.
+     */
+    public int getSamplesSince(double fpga_timestamp, TimestampedSample[] samples) {
+        return sample_history.getSamplesSince(fpga_timestamp, samples);
+    }
+
     /**
      * Sets an amount of angle to be automatically added before returning a
      * angle from the getAngle() method.  This allows users of the getAngle() method
@@ -1295,16 +1489,22 @@ public class AHRS extends SensorBase implements PIDSource, LiveWindowSendable {
         
         @Override
         public void setYawPitchRoll(YPRUpdate ypr_update, long sensor_timestamp) {
+            beginUpdate();
             AHRS.this.yaw = ypr_update.yaw;
             AHRS.this.pitch = ypr_update.pitch;
             AHRS.this.roll = ypr_update.roll;
             AHRS.this.compass_heading = ypr_update.compass_heading;
             AHRS.this.last_sensor_timestamp = sensor_timestamp;
+            AHRS.this.last_update_time = Timer.getFPGATimestamp();
+            processed_update_count++;
+            endUpdate();
         }
     
         @Override
         public void setAHRSPosData(AHRSPosUpdate ahrs_update, long sensor_timestamp) {
     
+            beginUpdate();
+
             /* Update base IMU class variables */
             
             AHRS.this.yaw                    = ahrs_update.yaw;
@@ -1359,30 +1559,29 @@ public class AHRS extends SensorBase implements PIDSource, LiveWindowSendable {
             
             AHRS.this.last_sensor_timestamp      = sensor_timestamp;
             
-            velocity[0]     = ahrs_update.vel_x;
-            velocity[1]     = ahrs_update.vel_y;
-            velocity[2]     = ahrs_update.vel_z;
-            displacement[0] = ahrs_update.disp_x;
-            displacement[1] = ahrs_update.disp_y;
-            displacement[2] = ahrs_update.disp_z;
+            velocity_x     = ahrs_update.vel_x;
+            velocity_y     = ahrs_update.vel_y;
+            velocity_z     = ahrs_update.vel_z;
+            displacement_x = ahrs_update.disp_x;
+            displacement_y = ahrs_update.disp_y;
+            displacement_z = ahrs_update.disp_z;
             
             yaw_angle_tracker.nextAngle(getYaw());
+            double fpga_timestamp = Timer.getFPGATimestamp();
+            AHRS.this.last_update_time = fpga_timestamp;
+            addSample(fpga_timestamp, sensor_timestamp);
+            processed_update_count++;
+            endUpdate();
             
             /* Notify external data arrival subscribers, if any. */
-            for (int i = 0; i < callbacks.length; i++) {
-                ITimestampedDataSubscriber callback = callbacks[i];
-                if (callback != null) {
-                	long system_timestamp = (long)(Timer.getFPGATimestamp() * 1000);
-                    callback.timestampedDataReceived(system_timestamp,
-                    		sensor_timestamp,
-                    		ahrs_update,
-                    		callback_contexts[i]);
-                }
-            }            
+            callbacks.publish((long)(fpga_timestamp * 1000),
+                    sensor_timestamp,
+                    ahrs_update);
         }
             
         @Override
         public void setRawData(AHRSProtocol.GyroUpdate raw_data_update, long sensor_timestamp) {
+            beginUpdate();
             AHRS.this.raw_gyro_x     = raw_data_update.gyro_x;
             AHRS.this.raw_gyro_y     = raw_data_update.gyro_y;
             AHRS.this.raw_gyro_z     = raw_data_update.gyro_z;
@@ -1395,11 +1594,15 @@ public class AHRS extends SensorBase implements PIDSource, LiveWindowSendable {
             AHRS.this.mpu_temp_c     = raw_data_update.temp_c;
             
             AHRS.this.last_sensor_timestamp      = sensor_timestamp;            
+            AHRS.this.last_update_time           = Timer.getFPGATimestamp();
+            endUpdate();
         }
         
         @Override
         public void setAHRSData(AHRSProtocol.AHRSUpdate ahrs_update, long sensor_timestamp) {
     
+            beginUpdate();
+
             /* Update base IMU class variables */
             
             AHRS.this.yaw                    = ahrs_update.yaw;
@@ -1465,18 +1668,16 @@ public class AHRS extends SensorBase implements PIDSource, LiveWindowSendable {
                     AHRS.this.is_moving);
             
             yaw_angle_tracker.nextAngle(getYaw());
+            double fpga_timestamp = Timer.getFPGATimestamp();
+            AHRS.this.last_update_time = fpga_timestamp;
+            addSample(fpga_timestamp, sensor_timestamp);
+            processed_update_count++;
+            endUpdate();
             
             /* Notify external data arrival subscribers, if any. */
-            for (int i = 0; i < callbacks.length; i++) {
-                ITimestampedDataSubscriber callback = callbacks[i];
-                if (callback != null) {
-                	long system_timestamp = (long)(Timer.getFPGATimestamp() * 1000);
-                    callback.timestampedDataReceived(system_timestamp,
-                    		sensor_timestamp,
-                    		ahrs_update,
-                    		callback_contexts[i]);
-                }
-            }            
+            callbacks.publish((long)(fpga_timestamp * 1000),
+                    sensor_timestamp,
+                    ahrs_update);
         }
     
         @Override
@@ -1502,7 +1703,28 @@ public class AHRS extends SensorBase implements PIDSource, LiveWindowSendable {
 		@Override
 		public void yawResetComplete() {
 			AHRS.this.yaw_angle_tracker.reset();
+			AHRS.this.sample_history.clear();
 		}
+
+        /* The processed data is only consistent while update_sequence is */
+        /* even; it's odd while an update is being written (see snapshot()). */
+        private void beginUpdate() {
+            update_sequence++;
+        }
+
+        private void endUpdate() {
+            update_sequence++;
+        }
+
+        /* Records the latest angle and acceleration in the sample history. */
+        private void addSample(double fpga_timestamp, long sensor_timestamp) {
+            sample_history.add(fpga_timestamp,
+                    sensor_timestamp,
+                    yaw_angle_tracker.getAngle(),
+                    AHRS.this.world_linear_accel_x,
+                    AHRS.this.world_linear_accel_y,
+                    AHRS.this.world_linear_accel_z);
+        }
     };
     
     /***********************************************************/
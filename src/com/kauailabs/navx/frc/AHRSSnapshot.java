@@ -0,0 +1,61 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) Kauai Labs 2015. All Rights Reserved.                        */
+/*                                                                            */
+/* Created in support of Team 2465 (Kauaibots).  Go Purple Wave!              */
+/*                                                                            */
+/* Open Source Software - may be modified and shared by FRC teams. Any        */
+/* modifications to this code must be accompanied by the \License.txt file    */
+/* in the root directory of the project.                                      */
+/*----------------------------------------------------------------------------*/
+package com.kauailabs.navx.frc;
+
+/**
+ * A consistent copy of the AHRS processed data, as filled in by
+ * AHRS.snapshot().  All values come from the same sensor update; each has
+ * the same meaning as the corresponding AHRS get method.  Instances may be
+ * reused across calls.
+ */
+public class AHRSSnapshot {
+    /* Number of processed data updates received; with SPI/I2C this      */
+    /* matches AHRS.getUpdateCount(), which over serial also counts the  */
+    /* raw data and board ID packets.                                    */
+    public long    update_count;
+    /* FPGA time (in seconds) at which the update was received. */
+    public double  fpga_timestamp;
+    /* navX-Model device timestamp (in milliseconds). */
+    public long    sensor_timestamp;
+
+    public float   yaw;
+    public float   pitch;
+    public float   roll;
+    public float   compass_heading;
+    public float   fused_heading;
+    /* Total accumulated yaw angle, as returned by AHRS.getAngle(). */
+    public double  angle;
+
+    public float   world_linear_accel_x;
+    public float   world_linear_accel_y;
+    public float   world_linear_accel_z;
+
+    public float   velocity_x;
+    public float   velocity_y;
+    public float   velocity_z;
+    public float   displacement_x;
+    public float   displacement_y;
+    public float   displacement_z;
+
+    public float   quaternion_w;
+    public float   quaternion_x;
+    public float   quaternion_y;
+    public float   quaternion_z;
+
+    public float   temp_c;
+    public float   altitude;
+    public float   barometric_pressure;
+
+    public boolean is_moving;
+    public boolean is_rotating;
+    public boolean altitude_valid;
+    public boolean is_magnetometer_calibrated;
+    public boolean magnetic_disturbance;
+}
@@ -13,6 +13,8 @@ interface IIOProvider {
     public boolean  isConnected();
     public double   getByteCount();
     public double   getUpdateCount();
+    public long     getDuplicateReadCount();
+    public long     getMissedSampleCount();
     public void     setUpdateRateHz(byte update_rate);
     public void     zeroYaw();
     public void     zeroDisplacement();
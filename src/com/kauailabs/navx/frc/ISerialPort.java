@@ -0,0 +1,27 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) Kauai Labs 2015. All Rights Reserved.                        */
+/*                                                                            */
+/* Created in support of Team 2465 (Kauaibots).  Go Purple Wave!              */
+/*                                                                            */
+/* Open Source Software - may be modified and shared by FRC teams. Any        */
+/* modifications to this code must be accompanied by the \License.txt file    */
+/* in the root directory of the project.                                      */
+/*----------------------------------------------------------------------------*/
+package com.kauailabs.navx.frc;
+
+/**
+ * The subset of serial port operations used by SerialIO, so that it can be
+ * run against a real port (SerialPort_RoboRIO) or a recording
+ * (SerialPort_Replay).
+ */
+interface ISerialPort {
+    void setReadBufferSize(int size);
+    void setTimeout(double timeout);
+    void enableTermination(char terminator);
+    void flush();
+    void reset();
+    int write(byte[] buffer, int count);
+    int getBytesReceived();
+    byte[] read(int count);
+    void free();
+}
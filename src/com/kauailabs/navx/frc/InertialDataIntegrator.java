@@ -11,8 +11,12 @@ package com.kauailabs.navx.frc;
 
 class InertialDataIntegrator {
 
-    private float last_velocity[] = new float[2];
-    private float displacement[] = new float[2];
+    /* Written by the IO thread and read by others (e.g., AHRS.snapshot()), */
+    /* so these are volatile fields rather than arrays.                    */
+    private volatile float velocity_x;
+    private volatile float velocity_y;
+    private volatile float displacement_x;
+    private volatile float displacement_y;
 
     public InertialDataIntegrator() {
         resetDisplacement();
@@ -21,37 +25,34 @@ class InertialDataIntegrator {
     public void updateDisplacement( float accel_x_g, float accel_y_g, 
             int update_rate_hz, boolean is_moving ) {
         if ( is_moving ) {
-            float accel_g[] = new float[2];
-            float accel_m_s2[] = new float[2];
-            float curr_velocity_m_s[] = new float[2];
             float sample_time = (1.0f / update_rate_hz);
-            accel_g[0] = accel_x_g;
-            accel_g[1] = accel_y_g;
-            for ( int i = 0; i < 2; i++ ) {
-                accel_m_s2[i] = accel_g[i] * 9.80665f;
-                curr_velocity_m_s[i] = last_velocity[i] + (accel_m_s2[i] * sample_time);
-                displacement[i] += last_velocity[i] + (0.5f * accel_m_s2[i] * sample_time * sample_time);
-                last_velocity[i] = curr_velocity_m_s[i];
-            }
+            float accel_x_m_s2 = accel_x_g * 9.80665f;
+            float accel_y_m_s2 = accel_y_g * 9.80665f;
+            float last_velocity_x = velocity_x;
+            float last_velocity_y = velocity_y;
+            displacement_x += last_velocity_x + (0.5f * accel_x_m_s2 * sample_time * sample_time);
+            displacement_y += last_velocity_y + (0.5f * accel_y_m_s2 * sample_time * sample_time);
+            velocity_x = last_velocity_x + (accel_x_m_s2 * sample_time);
+            velocity_y = last_velocity_y + (accel_y_m_s2 * sample_time);
         } else {
-            last_velocity[0] = 0.0f;
-            last_velocity[1] = 0.0f;
+            velocity_x = 0.0f;
+            velocity_y = 0.0f;
         }
      }
     
     public void resetDisplacement() {
-        for ( int i = 0; i < 2; i++ ) {
-            last_velocity[i] = 0.0f;
-            displacement[i] = 0.0f;
-        }        
+        velocity_x = 0.0f;
+        velocity_y = 0.0f;
+        displacement_x = 0.0f;
+        displacement_y = 0.0f;
     }
 
     public float getVelocityX() {
-        return last_velocity[0];
+        return velocity_x;
     }
 
     public float getVelocityY() {
-        return last_velocity[1];
+        return velocity_y;
     }
 
     public float getVelocityZ() {
@@ -59,11 +60,11 @@ class InertialDataIntegrator {
     }
 
     public float getDisplacementX() {
-        return displacement[0];
+        return displacement_x;
     }
 
     public float getDisplacementY() {
-        return displacement[1];
+        return displacement_y;
     }
 
     public float getDisplacementZ() {
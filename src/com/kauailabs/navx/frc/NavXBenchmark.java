@@ -0,0 +1,209 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) Kauai Labs 2015. All Rights Reserved.                        */
+/*                                                                            */
+/* Created in support of Team 2465 (Kauaibots).  Go Purple Wave!              */
+/*                                                                            */
+/* Open Source Software - may be modified and shared by FRC teams. Any        */
+/* modifications to this code must be accompanied by the \License.txt file    */
+/* in the root directory of the project.                                      */
+/*----------------------------------------------------------------------------*/
+package com.kauailabs.navx.frc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import com.kauailabs.navx.AHRSProtocol;
+import com.kauailabs.navx.IMUProtocol;
+
+/**
+ * Times the navX decode and update paths without a device, and reports the
+ * time and bytes allocated per operation:
+ *
+ *  - AHRSProtocol / IMUProtocol packet decoding
+ *  - AHRS.IOCompleteNotification updates (AHRSPos, AHRS with the on-RoboRIO
+ *    integrator, and raw data)
+ *  - RegisterIO_Replay register frames through RegisterIO into AHRS
+ *  - SerialPort_Replay bytes through the framer and SerialIO into AHRS
+ *
+ *     java com.kauailabs.navx.frc.NavXBenchmark [register recording] [serial capture] [operations]
+ *
+ * Without recordings, frames and packets with advancing timestamps are
+ * made up.  An empty argument skips a recording.  AHRS and RegisterIO stamp
+ * updates with Timer.getFPGATimestamp(), so WPILib must be on the
+ * classpath.  See RegisterIOBenchmark for allocation counting.
+ */
+class NavXBenchmark {
+
+    static final int SERIAL_PACKETS = 1000;
+    static final int SERIAL_READ_SIZE = 256;
+
+    /* One timed operation; returns how many items (e.g. packets) it handled. */
+    static abstract class Case {
+        final String name;
+        Case(String name) { this.name = name; }
+        abstract int run(int i);
+    }
+
+    static float sink;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        File registers = args.length > 0 && !args[0].isEmpty() ? new File(args[0]) : null;
+        File serial = args.length > 1 && !args[1].isEmpty() ? new File(args[1]) : null;
+        final int operations = args.length > 2 ? Integer.parseInt(args[2]) : 1000000;
+        Random random = new Random(2465);
+
+        /* The IO thread is stopped, so that only this thread updates it. */
+        final AHRS ahrs = new AHRS(new RegisterIO_Replay(0, false), (byte)200);
+        ahrs.io.stop();
+        ahrs.io_thread.m_thread.join();
+
+        System.out.println("case                                       ns/op     bytes/op");
+
+        final byte[] ahrspos_ts = packet(AHRSProtocol.MSGID_AHRSPOS_TS_UPDATE, 94, random);
+        final byte[] ahrspos = packet(AHRSProtocol.MSGID_AHRSPOS_UPDATE, 66, random);
+        final byte[] ahrs_packet = packet(AHRSProtocol.MSGID_AHRS_UPDATE, 66, random);
+        final byte[] ypr = SerialPacketFramerBenchmark.asciiPacket(12.34f);
+        final AHRSProtocol.AHRSPosTSUpdate ahrspos_ts_update = new AHRSProtocol.AHRSPosTSUpdate();
+        final AHRSProtocol.AHRSPosUpdate ahrspos_update = new AHRSProtocol.AHRSPosUpdate();
+        final AHRSProtocol.AHRSUpdate ahrs_update = new AHRSProtocol.AHRSUpdate();
+        final IMUProtocol.YPRUpdate ypr_update = new IMUProtocol.YPRUpdate();
+        final IMUProtocol.GyroUpdate gyro_update = new IMUProtocol.GyroUpdate();
+
+        time(operations, new Case("AHRSProtocol.decodeAHRSPosTSUpdate") {
+            int run(int i) {
+                AHRSProtocol.decodeAHRSPosTSUpdate(ahrspos_ts, 0, ahrspos_ts.length, ahrspos_ts_update);
+                sink += ahrspos_ts_update.yaw;
+                return 1;
+            }
+        });
+        time(operations, new Case("AHRSProtocol.decodeAHRSPosUpdate") {
+            int run(int i) {
+                AHRSProtocol.decodeAHRSPosUpdate(ahrspos, 0, ahrspos.length, ahrspos_update);
+                sink += ahrspos_update.yaw;
+                return 1;
+            }
+        });
+        time(operations, new Case("AHRSProtocol.decodeAHRSUpdate") {
+            int run(int i) {
+                AHRSProtocol.decodeAHRSUpdate(ahrs_packet, 0, ahrs_packet.length, ahrs_update);
+                sink += ahrs_update.yaw;
+                return 1;
+            }
+        });
+        time(operations, new Case("IMUProtocol.decodeYPRUpdate") {
+            int run(int i) {
+                IMUProtocol.decodeYPRUpdate(ypr, 0, ypr.length, ypr_update);
+                sink += ypr_update.yaw;
+                return 1;
+            }
+        });
+
+        time(operations, new Case("IOCompleteNotification.setAHRSPosData") {
+            int run(int i) {
+                ahrspos_update.yaw = i % 360 - 180;
+                ahrs.io_complete_sink.setAHRSPosData(ahrspos_update, i);
+                return 1;
+            }
+        });
+        time(operations, new Case("IOCompleteNotification.setAHRSData") {
+            int run(int i) {
+                ahrs_update.yaw = i % 360 - 180;
+                ahrs.io_complete_sink.setAHRSData(ahrs_update, i);
+                return 1;
+            }
+        });
+        time(operations, new Case("IOCompleteNotification.setRawData") {
+            int run(int i) {
+                gyro_update.gyro_x = (short)i;
+                ahrs.io_complete_sink.setRawData(gyro_update, i);
+                return 1;
+            }
+        });
+
+        registerCase(ahrs, registers, AHRSProtocol.NAVX_CAPABILITY_FLAG_VEL_AND_DISP,
+                "RegisterIO_Replay -> AHRS (ahrspos)", operations);
+        registerCase(ahrs, registers, (short)0,
+                "RegisterIO_Replay -> AHRS (ahrs)", operations);
+        serialCase(ahrs, serial, operations);
+        System.exit(0);
+    }
+
+    static void registerCase(AHRS ahrs, File recording, short capability_flags, String name, int operations) throws IOException {
+        final RegisterIO io = new RegisterIO(RegisterIOBenchmark.replay(recording, capability_flags),
+                (byte)200, ahrs.io_complete_sink, ahrs.board_capabilities);
+        /* Picks up the capability flags from the frames. */
+        io.getCurrentData();
+        io.getCurrentData();
+        time(operations, new Case(name) {
+            int run(int i) {
+                return io.getCurrentData() == RegisterIO.READ_NEW_SAMPLE ? 1 : 0;
+            }
+        });
+    }
+
+    /* Times per packet: reads, frames and decodes AHRSPos timestamped packets. */
+    static void serialCase(AHRS ahrs, File capture, int operations) throws IOException {
+        byte[] data;
+        if ( capture != null ) {
+            data = java.nio.file.Files.readAllBytes(capture.toPath());
+        } else {
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            for ( int i = 0; i < SERIAL_PACKETS; i++ ) {
+                byte[] packet = SerialPacketFramerBenchmark.binaryPacket((i % 360) - 180, i);
+                stream.write(packet, 0, packet.length);
+            }
+            data = stream.toByteArray();
+        }
+        final SerialPort_Replay port = new SerialPort_Replay(data, 0, true);
+        final SerialIO io = new SerialIO(() -> port, false, (byte)200, true,
+                ahrs.io_complete_sink, ahrs.board_capabilities);
+        final SerialPacketFramer framer = new SerialPacketFramer();
+        final SerialPacketFramer.PacketHandler handler = io::decodePacketHandler;
+        /* Each read is about three packets. */
+        time(operations / 3, new Case("SerialPort_Replay -> AHRS (per packet)") {
+            int run(int i) {
+                byte[] received = port.read(SERIAL_READ_SIZE);
+                framer.append(received, received.length);
+                return framer.process(handler);
+            }
+        });
+    }
+
+    static void time(int operations, Case c) {
+        /* Warm up, so the JIT has compiled the path. */
+        for ( int i = 0; i < operations / 10; i++ ) {
+            c.run(i);
+        }
+        long items = 0;
+        long bytes_before = RegisterIOBenchmark.allocatedBytes();
+        long start = System.nanoTime();
+        for ( int i = 0; i < operations; i++ ) {
+            items += c.run(i);
+        }
+        long elapsed = System.nanoTime() - start;
+        long bytes_after = RegisterIOBenchmark.allocatedBytes();
+
+        items = Math.max(1, items);
+        String bytes = bytes_before < 0 ? "n/a" :
+                String.format("%.1f", (double)(bytes_after - bytes_before) / items);
+        System.out.printf("%-40s %8.1f %12s%n", c.name, (double)elapsed / items, bytes);
+        if ( sink == 42 ) {
+            /* Keeps the decoded data alive, so it isn't optimized away. */
+            System.out.print("");
+        }
+    }
+
+    /* A binary packet with random contents and a valid checksum. */
+    static byte[] packet(byte msg_id, int length, Random random) {
+        byte[] packet = new byte[length];
+        random.nextBytes(packet);
+        packet[0] = IMUProtocol.PACKET_START_CHAR;
+        packet[1] = AHRSProtocol.BINARY_PACKET_INDICATOR_CHAR;
+        packet[2] = (byte)(length - 2);
+        packet[3] = msg_id;
+        IMUProtocol.encodeTermination(packet, length, length - 4);
+        return packet;
+    }
+}
@@ -13,6 +13,8 @@ import com.kauailabs.navx.AHRSProtocol;
 import com.kauailabs.navx.IMUProtocol;
 import com.kauailabs.navx.IMURegisters;
 
+import java.util.concurrent.locks.LockSupport;
+
 import edu.wpi.first.wpilibj.Timer;
 
 class RegisterIO implements IIOProvider {
@@ -29,9 +31,27 @@ class RegisterIO implements IIOProvider {
     double last_update_time;
     int byte_count;
     int update_count;
+    volatile long duplicate_read_count;
+    volatile long missed_sample_count;
     long last_sensor_timestamp;
+    /* Buffers are allocated once, and reused for every read.  Fields */
+    /* are decoded straight out of them by offset.                    */
+    final byte config_data[] = new byte[IMURegisters.NAVX_REG_SENSOR_STATUS_H+1];
+    final byte ahrspos_data[] = new byte[IMURegisters.NAVX_REG_LAST + 1 - IMURegisters.NAVX_REG_UPDATE_RATE_HZ];
+    final byte ahrs_data[] = new byte[IMURegisters.NAVX_REG_QUAT_OFFSET_Z_H + 1 - IMURegisters.NAVX_REG_UPDATE_RATE_HZ];
     
-    static final double DELAY_OVERHEAD_SECONDS = 0.004;
+    static final int    NAVX_MOTION_PROCESSOR_UPDATE_RATE_HZ = 200;
+    /* Results of getCurrentData() */
+    static final int    READ_FAILED      = 0;
+    static final int    READ_DUPLICATE   = 1;
+    static final int    READ_NEW_SAMPLE  = 2;
+    /* Poll phase adjustments, as fractions of the update period.  After  */
+    /* a duplicate read, the next read is retried a little later, which   */
+    /* also moves every following read later.  After each new sample the  */
+    /* next read is moved slightly earlier, so the reads settle just      */
+    /* after the sensor produces each sample, with a rare duplicate.      */
+    static final int    DUPLICATE_RETRY_DIVISOR = 8;
+    static final int    PHASE_ADVANCE_DIVISOR   = 256;
     
     public RegisterIO( IRegisterIO io_provider, byte update_rate_hz, IIOCompleteNotification notify_sink, IBoardCapabilities board_capabilities  ) {
         this.io_provider = io_provider;
@@ -60,22 +80,55 @@ class RegisterIO implements IIOProvider {
         setUpdateRateHz(this.update_rate_hz);
         getConfiguration();
         
-        /* Calculate delay to match configured update rate */
-        /* Note:  some additional time is removed from the */
-        /* 1/update_rate value to ensure samples are not   */
-        /* dropped, esp. at higher update rates.           */
-        double update_rate = 1.0/((double)((int)(this.update_rate_hz & 0xFF)));
-        if ( update_rate > DELAY_OVERHEAD_SECONDS) {
-        	update_rate -= DELAY_OVERHEAD_SECONDS;
-        }
-        
         /* IO Loop */
+        /* Reads are scheduled against absolute deadlines, so the time   */
+        /* spent reading and any scheduling jitter doesn't accumulate.   */
+        long next_read_time = System.nanoTime();
         while (!stop) {
             if ( board_state.update_rate_hz != this.update_rate_hz ) {
                 setUpdateRateHz(this.update_rate_hz);
             }
-            getCurrentData();
-            Timer.delay(update_rate);
+            long period = getUpdatePeriodNanos();
+            int result = getCurrentData();
+            long now = System.nanoTime();
+            if ( result == READ_DUPLICATE ) {
+                /* A read (e.g., SPI) can take longer than the retry delay,  */
+                /* so the retry may already be due; it then runs right away. */
+                /* A retry is never skipped, or the sample it waits for      */
+                /* would be overwritten.  The deadline stays on schedule, so */
+                /* the following reads keep their phase.                     */
+                next_read_time += period / DUPLICATE_RETRY_DIVISOR;
+            } else {
+                if ( result == READ_NEW_SAMPLE ) {
+                    next_read_time += period - (period / PHASE_ADVANCE_DIVISOR);
+                } else {
+                    next_read_time += period;
+                }
+                if ( next_read_time - now < 0 ) {
+                    /* Fell behind (e.g., a long pause); skip the missed reads */
+                    /* rather than reading in a burst, keeping the same phase. */
+                    next_read_time += ((now - next_read_time) / period + 1) * period;
+                }
+            }
+            sleepUntil(next_read_time);
+        }
+    }
+
+    /* The sensor's actual update period, which is the requested rate */
+    /* rounded to a divisor of the motion processor rate.  Computed   */
+    /* from the divisor, since the actual rate (e.g., 66.67 Hz for 60) */
+    /* is often not a whole number.                                    */
+    private long getUpdatePeriodNanos() {
+        int requested_rate = Math.max(1, Math.min(NAVX_MOTION_PROCESSOR_UPDATE_RATE_HZ,
+                (int)(this.update_rate_hz & 0xFF)));
+        int divisor = NAVX_MOTION_PROCESSOR_UPDATE_RATE_HZ / requested_rate;
+        return divisor * 1000000000L / NAVX_MOTION_PROCESSOR_UPDATE_RATE_HZ;
+    }
+
+    private void sleepUntil(long deadline) {
+        long remaining;
+        while (!stop && (remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
         }
     }
     
@@ -83,7 +136,7 @@ class RegisterIO implements IIOProvider {
         boolean success = false;
         int retry_count = 0;
         while ( retry_count < 3 && !success ) {
-            byte config[] = new byte[IMURegisters.NAVX_REG_SENSOR_STATUS_H+1];
+            byte config[] = config_data;
             if ( io_provider.read(IMURegisters.NAVX_REG_WHOAMI,config) ) {
                 board_id.hw_rev                 = config[IMURegisters.NAVX_REG_HW_REV];
                 board_id.fw_ver_major           = config[IMURegisters.NAVX_REG_FW_VER_MAJOR];
@@ -111,22 +164,20 @@ class RegisterIO implements IIOProvider {
     }
     
 
-    private void getCurrentData() {
+    /* Package visible so RegisterIOBenchmark can time it. */
+    int getCurrentData() {
         byte first_address = IMURegisters.NAVX_REG_UPDATE_RATE_HZ;
         boolean displacement_registers = board_capabilities.isDisplacementSupported();
-        byte curr_data[];
         /* If firmware supports displacement data, acquire it - otherwise implement */
         /* similar (but potentially less accurate) calculations on this processor.  */
-        if ( displacement_registers ) {
-            curr_data = new byte[IMURegisters.NAVX_REG_LAST + 1 - first_address];
-        } else {
-            curr_data= new byte[IMURegisters.NAVX_REG_QUAT_OFFSET_Z_H + 1 - first_address];
-        }
+        byte curr_data[] = displacement_registers ? ahrspos_data : ahrs_data;
         if ( io_provider.read(first_address,curr_data) ) {
         	long sensor_timestamp = AHRSProtocol.decodeBinaryUint32(curr_data, IMURegisters.NAVX_REG_TIMESTAMP_L_L-first_address);
             if ( sensor_timestamp == last_sensor_timestamp ) {
-            	return;
+                duplicate_read_count++;
+            	return READ_DUPLICATE;
             }
+            countMissedSamples(sensor_timestamp);
             last_sensor_timestamp = sensor_timestamp;
             ahrspos_update.op_status    = curr_data[IMURegisters.NAVX_REG_OP_STATUS - first_address];
             ahrspos_update.selftest_status = curr_data[IMURegisters.NAVX_REG_SELFTEST_STATUS - first_address];
@@ -199,6 +250,22 @@ class RegisterIO implements IIOProvider {
             this.last_update_time = Timer.getFPGATimestamp();
             byte_count += curr_data.length;
             update_count++;
+            return READ_NEW_SAMPLE;
+        }
+        return READ_FAILED;
+    }
+
+    /* Counts samples the sensor produced between the last one read and */
+    /* this one, based on the sensor's own timestamps.                  */
+    private void countMissedSamples(long sensor_timestamp) {
+        if ( last_sensor_timestamp == 0 ) {
+            return;
+        }
+        long elapsed_ms = sensor_timestamp - last_sensor_timestamp;
+        double period_ms = getUpdatePeriodNanos() / 1000000.0;
+        long samples = Math.round(elapsed_ms / period_ms);
+        if ( samples > 1 ) {
+            missed_sample_count += samples - 1;
         }
     }
 
@@ -218,6 +285,16 @@ class RegisterIO implements IIOProvider {
         return update_count;
     }
 
+    @Override
+    public long getDuplicateReadCount() {
+        return duplicate_read_count;
+    }
+
+    @Override
+    public long getMissedSampleCount() {
+        return missed_sample_count;
+    }
+
     @Override
     public void setUpdateRateHz(byte update_rate_hz) {
         io_provider.write(IMURegisters.NAVX_REG_UPDATE_RATE_HZ, update_rate_hz);
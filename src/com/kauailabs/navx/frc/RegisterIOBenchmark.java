@@ -0,0 +1,136 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) Kauai Labs 2015. All Rights Reserved.                        */
+/*                                                                            */
+/* Created in support of Team 2465 (Kauaibots).  Go Purple Wave!              */
+/*                                                                            */
+/* Open Source Software - may be modified and shared by FRC teams. Any        */
+/* modifications to this code must be accompanied by the \License.txt file    */
+/* in the root directory of the project.                                      */
+/*----------------------------------------------------------------------------*/
+package com.kauailabs.navx.frc;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import com.kauailabs.navx.AHRSProtocol;
+import com.kauailabs.navx.IMUProtocol;
+import com.kauailabs.navx.IMURegisters;
+
+/**
+ * Times RegisterIO's register read and decode path (getCurrentData), fed by
+ * a RegisterIO_Replay, and reports the time and bytes allocated per sample.
+ * Both the displacement (AHRSPos) and the plain AHRS register layouts are
+ * run.  Without a recording, frames with advancing timestamps are made up:
+ *
+ *     java com.kauailabs.navx.frc.RegisterIOBenchmark [recording] [samples]
+ *
+ * RegisterIO stamps each sample with Timer.getFPGATimestamp(), so WPILib
+ * must be on the classpath.  Allocation counts need a JVM that supports
+ * per-thread allocation counting (com.sun.management.ThreadMXBean).
+ */
+class RegisterIOBenchmark {
+
+    static final int SYNTHETIC_FRAMES = 1000;
+
+    public static void main(String[] args) throws IOException {
+        File recording = args.length > 0 && !args[0].isEmpty() ? new File(args[0]) : null;
+        int samples = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+
+        System.out.println("layout    samples   ns/sample   bytes/sample   new   duplicate");
+        run("ahrspos", replay(recording, (short)0), true, samples);
+        run("ahrs", replay(recording, (short)0), false, samples);
+    }
+
+    /* Made up frames report the given capability flags. */
+    static RegisterIO_Replay replay(File recording, short capability_flags) throws IOException {
+        if ( recording != null ) {
+            return RegisterIO_Replay.load(recording, 0, true);
+        }
+        RegisterIO_Replay replay = new RegisterIO_Replay(0, true);
+        byte first_address = IMURegisters.NAVX_REG_UPDATE_RATE_HZ;
+        for ( int i = 0; i < SYNTHETIC_FRAMES; i++ ) {
+            byte[] frame = new byte[IMURegisters.NAVX_REG_LAST + 1 - first_address];
+            frame[0] = (byte)200;
+            AHRSProtocol.encodeBinaryUint16(capability_flags, frame,
+                    IMURegisters.NAVX_REG_CAPABILITY_FLAGS_L - first_address);
+            AHRSProtocol.encodeBinaryUint32(1000 + i * 5, frame,
+                    IMURegisters.NAVX_REG_TIMESTAMP_L_L - first_address);
+            AHRSProtocol.encodeProtocolSignedHundredthsFloat((i % 360) - 180.0f, frame,
+                    IMURegisters.NAVX_REG_YAW_L - first_address);
+            replay.addFrame(first_address, frame);
+        }
+        return replay;
+    }
+
+    static void run(String layout, RegisterIO_Replay replay, final boolean displacement, int samples) {
+        Sink sink = new Sink();
+        RegisterIO io = new RegisterIO(replay, (byte)200, sink, new IBoardCapabilities() {
+            public boolean isOmniMountSupported()       { return true; }
+            public boolean isBoardYawResetSupported()   { return true; }
+            public boolean isDisplacementSupported()    { return displacement; }
+            public boolean isAHRSPosTimestampSupported(){ return true; }
+        });
+
+        /* Warm up, so the JIT has compiled the decode path. */
+        for ( int i = 0; i < samples / 10; i++ ) {
+            io.getCurrentData();
+        }
+
+        int new_samples = 0;
+        int duplicates = 0;
+        long bytes_before = allocatedBytes();
+        long start = System.nanoTime();
+        for ( int i = 0; i < samples; i++ ) {
+            int result = io.getCurrentData();
+            if ( result == RegisterIO.READ_NEW_SAMPLE ) {
+                new_samples++;
+            } else if ( result == RegisterIO.READ_DUPLICATE ) {
+                duplicates++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        long bytes_after = allocatedBytes();
+
+        String bytes = bytes_before < 0 ? "n/a" :
+                String.format("%.3f", (double)(bytes_after - bytes_before) / samples);
+        System.out.printf("%-8s %8d %11.1f %14s %7d %11d%n", layout, samples,
+                (double)elapsed / samples, bytes, new_samples, duplicates);
+        if ( sink.yaw == 42 ) {
+            /* Keeps the decoded data alive, so it isn't optimized away. */
+            System.out.print("");
+        }
+    }
+
+    /* Bytes allocated so far by this thread, or -1 if not supported. */
+    static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if ( bean instanceof com.sun.management.ThreadMXBean ) {
+            com.sun.management.ThreadMXBean sun_bean = (com.sun.management.ThreadMXBean)bean;
+            if ( sun_bean.isThreadAllocatedMemorySupported() && sun_bean.isThreadAllocatedMemoryEnabled() ) {
+                return sun_bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    static class Sink implements IIOCompleteNotification {
+        float yaw;
+
+        public void setYawPitchRoll(IMUProtocol.YPRUpdate yprupdate, long sensor_timestamp) {
+            yaw += yprupdate.yaw;
+        }
+        public void setAHRSData(AHRSProtocol.AHRSUpdate ahrs_update, long sensor_timestamp) {
+            yaw += ahrs_update.yaw;
+        }
+        public void setAHRSPosData(AHRSProtocol.AHRSPosUpdate ahrs_update, long sensor_timestamp) {
+            yaw += ahrs_update.yaw;
+        }
+        public void setRawData(IMUProtocol.GyroUpdate raw_data_update, long sensor_timestamp) {
+            yaw += raw_data_update.gyro_x;
+        }
+        public void setBoardID(AHRSProtocol.BoardID board_id) {}
+        public void setBoardState(BoardState board_state) {}
+        public void yawResetComplete() {}
+    }
+}
@@ -41,6 +41,8 @@ class RegisterIO_I2C implements IRegisterIO{
     }
 
     final static int MAX_WPILIB_I2C_READ_BYTES = 127;
+    /* Reused for every read, only used while synchronized */
+    private final byte[] read_buffer = new byte[MAX_WPILIB_I2C_READ_BYTES];
     
     @Override
     public boolean read(byte first_address, byte[] buffer) {
@@ -48,7 +50,6 @@ class RegisterIO_I2C implements IRegisterIO{
         int buffer_offset = 0;
         while ( len > 0 ) {
             int read_len = (len > MAX_WPILIB_I2C_READ_BYTES) ? MAX_WPILIB_I2C_READ_BYTES : len;
-            byte[] read_buffer = new byte[read_len];      
             boolean write_aborted;
             boolean read_aborted = true;
             synchronized(this){
@@ -56,9 +57,11 @@ class RegisterIO_I2C implements IRegisterIO{
             	if ( !write_aborted ) {
             		read_aborted = port.readOnly(read_buffer, read_len);
             	}
+                if ( !write_aborted && !read_aborted ) {
+                    System.arraycopy(read_buffer, 0,  buffer, buffer_offset, read_len);
+                }
             }
-            if ( !write_aborted && !read_aborted ) {                
-                System.arraycopy(read_buffer, 0,  buffer, buffer_offset, read_len);
+            if ( !write_aborted && !read_aborted ) {
                 buffer_offset += read_len;
                 len -= read_len;
             } else {
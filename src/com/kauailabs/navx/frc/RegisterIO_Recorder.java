@@ -0,0 +1,96 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) Kauai Labs 2015. All Rights Reserved.                        */
+/*                                                                            */
+/* Created in support of Team 2465 (Kauaibots).  Go Purple Wave!              */
+/*                                                                            */
+/* Open Source Software - may be modified and shared by FRC teams. Any        */
+/* modifications to this code must be accompanied by the \License.txt file    */
+/* in the root directory of the project.                                      */
+/*----------------------------------------------------------------------------*/
+package com.kauailabs.navx.frc;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Passes register access through to another IRegisterIO, and records every
+ * successful read so it can be played back later by RegisterIO_Replay.
+ *
+ * Each read is written as:  first address (1 byte), length (2 bytes, big
+ * endian), then the data.  Recording stops (without affecting register
+ * access) if the file can't be written.
+ */
+class RegisterIO_Recorder implements IRegisterIO {
+
+    /* Flushed regularly, since recording usually ends with power off. */
+    static final int FLUSH_INTERVAL_READS = 200;
+
+    IRegisterIO io_provider;
+    private DataOutputStream out;
+    private int reads;
+
+    public RegisterIO_Recorder( IRegisterIO io_provider, File file ) throws IOException {
+        this.io_provider = io_provider;
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    }
+
+    @Override
+    public boolean init() {
+        return io_provider.init();
+    }
+
+    @Override
+    public boolean write(byte address, byte value) {
+        return io_provider.write(address, value);
+    }
+
+    @Override
+    public boolean read(byte first_address, byte[] buffer) {
+        boolean read_ok = io_provider.read(first_address, buffer);
+        if ( read_ok ) {
+            synchronized(this) {
+                if ( out != null ) {
+                    try {
+                        out.writeByte(first_address);
+                        out.writeShort(buffer.length);
+                        out.write(buffer);
+                        if ( ++reads % FLUSH_INTERVAL_READS == 0 ) {
+                            out.flush();
+                        }
+                    } catch (IOException ex) {
+                        ex.printStackTrace();
+                        close();
+                    }
+                }
+            }
+        }
+        return read_ok;
+    }
+
+    @Override
+    public boolean shutdown() {
+        synchronized(this) {
+            close();
+        }
+        return io_provider.shutdown();
+    }
+
+    @Override
+    public void enableLogging(boolean enable) {
+        io_provider.enableLogging(enable);
+    }
+
+    private void close() {
+        if ( out != null ) {
+            try {
+                out.close();
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+            out = null;
+        }
+    }
+}
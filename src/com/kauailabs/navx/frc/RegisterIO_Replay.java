@@ -0,0 +1,152 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) Kauai Labs 2015. All Rights Reserved.                        */
+/*                                                                            */
+/* Created in support of Team 2465 (Kauaibots).  Go Purple Wave!              */
+/*                                                                            */
+/* Open Source Software - may be modified and shared by FRC teams. Any        */
+/* modifications to this code must be accompanied by the \License.txt file    */
+/* in the root directory of the project.                                      */
+/*----------------------------------------------------------------------------*/
+package com.kauailabs.navx.frc;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.kauailabs.navx.IMURegisters;
+
+/**
+ * Stands in for SPI/I2C register access by playing back recorded register
+ * reads (see RegisterIO_Recorder), so that RegisterIO and the register
+ * decoding can be run without a device.
+ *
+ * Each frame holds the first address and contents of one recorded read.
+ * Frames are applied in order to an in-memory copy of the register map, and
+ * reads are served from that copy.  Frames are applied at a configurable
+ * rate, measured from the first read; a rate of 0 applies one frame per
+ * read, which replays as fast as the reader can go.  Writes are applied to
+ * the register map (until the next frame overwrites them) and counted.
+ */
+class RegisterIO_Replay implements IRegisterIO {
+
+    private final byte[] registers = new byte[IMURegisters.NAVX_REG_LAST + 1];
+    private final List<byte[]> frames = new ArrayList<byte[]>();
+    private final boolean loop;
+    private double frames_per_second;
+    private long start_time_ns = -1;
+    private long frames_before_start;
+    private long frames_applied;
+    private int next_frame;
+    private long read_count;
+    private long write_count;
+
+    public RegisterIO_Replay( double frames_per_second, boolean loop ) {
+        this.frames_per_second = frames_per_second;
+        this.loop = loop;
+    }
+
+    /* Loads frames in the format written by RegisterIO_Recorder. */
+    public static RegisterIO_Replay load( File file, double frames_per_second, boolean loop ) throws IOException {
+        RegisterIO_Replay replay = new RegisterIO_Replay(frames_per_second, loop);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                int first_address;
+                try {
+                    first_address = in.readUnsignedByte();
+                } catch (EOFException ex) {
+                    break;
+                }
+                byte[] data = new byte[in.readUnsignedShort()];
+                in.readFully(data);
+                replay.addFrame((byte)first_address, data);
+            }
+        }
+        return replay;
+    }
+
+    public synchronized void addFrame( byte first_address, byte[] data ) {
+        byte[] frame = new byte[data.length + 1];
+        frame[0] = first_address;
+        System.arraycopy(data, 0, frame, 1, data.length);
+        frames.add(frame);
+    }
+
+    /* Changes the playback rate; 0 applies one frame per read. */
+    public synchronized void setRate( double frames_per_second ) {
+        frames_before_start = frames_applied;
+        start_time_ns = -1;
+        this.frames_per_second = frames_per_second;
+    }
+
+    public synchronized long getFramesApplied() {
+        return frames_applied;
+    }
+
+    public synchronized long getReadCount() {
+        return read_count;
+    }
+
+    public synchronized long getWriteCount() {
+        return write_count;
+    }
+
+    @Override
+    public boolean init() {
+        return true;
+    }
+
+    @Override
+    public synchronized boolean write(byte address, byte value) {
+        registers[address & 0xFF] = value;
+        write_count++;
+        return true;
+    }
+
+    @Override
+    public synchronized boolean read(byte first_address, byte[] buffer) {
+        long due;
+        if ( frames_per_second > 0 ) {
+            long now = System.nanoTime();
+            if ( start_time_ns < 0 ) {
+                start_time_ns = now;
+            }
+            due = frames_before_start +
+                    (long)((now - start_time_ns) * frames_per_second / 1e9);
+        } else {
+            due = frames_applied + 1;
+        }
+        while ( frames_applied < due ) {
+            if ( next_frame == frames.size() ) {
+                if ( !loop || frames.isEmpty() ) {
+                    break;
+                }
+                next_frame = 0;
+            }
+            byte[] frame = frames.get(next_frame++);
+            int address = frame[0] & 0xFF;
+            System.arraycopy(frame, 1, registers, address,
+                    Math.min(frame.length - 1, registers.length - address));
+            frames_applied++;
+        }
+
+        int address = first_address & 0xFF;
+        int length = Math.min(buffer.length, registers.length - address);
+        System.arraycopy(registers, address, buffer, 0, length);
+        read_count++;
+        return true;
+    }
+
+    @Override
+    public boolean shutdown() {
+        return true;
+    }
+
+    @Override
+    public void enableLogging(boolean enable) {
+    }
+}
@@ -10,6 +10,7 @@
 package com.kauailabs.navx.frc;
 
 import com.kauailabs.navx.AHRSProtocol;
+import com.kauailabs.navx.IMURegisters;
 
 import edu.wpi.first.wpilibj.SPI;
 import edu.wpi.first.wpilibj.Timer;
@@ -22,6 +23,12 @@ class RegisterIO_SPI implements IRegisterIO{
     
     static final int   DEFAULT_SPI_BITRATE_HZ         = 500000;
     
+    /* Reused for every transfer, only used while synchronized.  The  */
+    /* receive buffer fits the largest register block plus its CRC.   */
+    private final byte[] write_cmd = new byte[3];
+    private final byte[] read_cmd = new byte[3];
+    private byte[] received_data = new byte[IMURegisters.NAVX_REG_LAST + 2];
+    
     public RegisterIO_SPI( SPI spi_port ) {
         port = spi_port;
         bitrate = DEFAULT_SPI_BITRATE_HZ;
@@ -49,12 +56,12 @@ class RegisterIO_SPI implements IRegisterIO{
 
     @Override
     public boolean write(byte address, byte value ) {
-        byte[] cmd = new byte[3];
-        cmd[0] = (byte) (address  | (byte)0x80);
-        cmd[1] = value;
-        cmd[2] = AHRSProtocol.getCRC(cmd, 2);
         boolean write_ok;
         synchronized(this) {
+            byte[] cmd = write_cmd;
+            cmd[0] = (byte) (address  | (byte)0x80);
+            cmd[1] = value;
+            cmd[2] = AHRSProtocol.getCRC(cmd, 2);
         	write_ok = (port.write(cmd, cmd.length) == cmd.length);
         }
         if ( !write_ok ) {
@@ -66,27 +73,30 @@ class RegisterIO_SPI implements IRegisterIO{
 
     @Override
     public boolean read(byte first_address, byte[] buffer) {
-        byte[] cmd = new byte[3];
-        cmd[0] = first_address;
-        cmd[1] = (byte)buffer.length;
-        cmd[2] = AHRSProtocol.getCRC(cmd, 2);
         synchronized(this) {
+            byte[] cmd = read_cmd;
+            cmd[0] = first_address;
+            cmd[1] = (byte)buffer.length;
+            cmd[2] = AHRSProtocol.getCRC(cmd, 2);
 	        if ( port.write(cmd, cmd.length) != cmd.length ) {
 	        	return false; // WRITE ERROR
 	        }
 	        // delay 200 us /* TODO:  What is min. granularity of delay()? */
 	        Timer.delay(0.001);
-	        byte[] received_data = new byte[buffer.length+1];
-	        if ( port.read(true, received_data, received_data.length) != received_data.length ) {
+	        int received_length = buffer.length+1;
+	        if ( received_data.length < received_length ) {
+	            received_data = new byte[received_length];
+	        }
+	        if ( port.read(true, received_data, received_length) != received_length ) {
 	            if (trace) System.out.println("navX-MXP SPI Read:  Read error");
 	            return false; // READ ERROR
 	        }
-	        byte crc = AHRSProtocol.getCRC(received_data, received_data.length - 1);
-	        if ( crc != received_data[received_data.length-1] ) {
+	        byte crc = AHRSProtocol.getCRC(received_data, received_length - 1);
+	        if ( crc != received_data[received_length-1] ) {
 	            if (trace) System.out.println("navX-MXP SPI Read:  CRC error");        	
 	            return false; // CRC ERROR
 	        }
-	        System.arraycopy(received_data, 0, buffer, 0, received_data.length - 1);
+	        System.arraycopy(received_data, 0, buffer, 0, received_length - 1);
         }
         return true;
     }
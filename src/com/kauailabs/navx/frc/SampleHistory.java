@@ -0,0 +1,206 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) Kauai Labs 2015. All Rights Reserved.                        */
+/*                                                                            */
+/* Created in support of Team 2465 (Kauaibots).  Go Purple Wave!              */
+/*                                                                            */
+/* Open Source Software - may be modified and shared by FRC teams. Any        */
+/* modifications to this code must be accompanied by the \License.txt file    */
+/* in the root directory of the project.                                      */
+/*----------------------------------------------------------------------------*/
+package com.kauailabs.navx.frc;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed capacity history of the most recent AHRS samples, written by the IO
+ * thread and read by any number of other threads without locking.
+ *
+ * Each slot is guarded by its own sequence number (a per-slot seqlock).  The
+ * writer marks the slot odd while it is being filled, and then sets it to an
+ * even value derived from the sample number.  A reader accepts a slot only if
+ * it sees the same, expected, even sequence number before and after copying
+ * the slot; otherwise the sample has been overwritten and is treated as gone.
+ * All slot data is stored in an AtomicLongArray so that the sequence checks
+ * are ordered with respect to the data reads and writes.
+ *
+ * There must only be one writer (the IO thread).
+ */
+class SampleHistory {
+
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private static final int FPGA_TIMESTAMP   = 0;
+    private static final int SENSOR_TIMESTAMP = 1;
+    private static final int ANGLE            = 2;
+    private static final int RATE             = 3;
+    private static final int ACCEL_X          = 4;
+    private static final int ACCEL_Y          = 5;
+    private static final int ACCEL_Z          = 6;
+    private static final int NUM_FIELDS       = 7;
+
+    private final int mask;
+    private final AtomicLongArray sequence;
+    private final AtomicLongArray data;
+    /* Number of samples ever added; the newest sample is count - 1. */
+    private volatile long count;
+    /* Samples before this one are ignored (e.g., after a yaw reset). */
+    private volatile long first;
+
+    /* Only used by the writer. */
+    private double last_angle;
+    private long   last_sensor_timestamp;
+
+    public SampleHistory() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity number of samples to keep; rounded up to a power of two.
+     */
+    public SampleHistory(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        mask = size - 1;
+        sequence = new AtomicLongArray(size);
+        data = new AtomicLongArray(size * NUM_FIELDS);
+    }
+
+    /**
+     * Adds the newest sample, overwriting the oldest if the history is full.
+     * The rate is derived from the previous sample's angle and sensor
+     * timestamp.
+     */
+    public void add(double fpga_timestamp, long sensor_timestamp, double angle,
+            float accel_x, float accel_y, float accel_z) {
+        long n = count;
+        double rate = 0.0;
+        if ((n > first) && (sensor_timestamp > last_sensor_timestamp)) {
+            rate = (angle - last_angle) * 1000.0 /
+                    (sensor_timestamp - last_sensor_timestamp);
+        }
+        last_angle = angle;
+        last_sensor_timestamp = sensor_timestamp;
+
+        int slot = (int)(n & mask);
+        int base = slot * NUM_FIELDS;
+        sequence.set(slot, 2 * n + 1);
+        data.set(base + FPGA_TIMESTAMP, Double.doubleToRawLongBits(fpga_timestamp));
+        data.set(base + SENSOR_TIMESTAMP, sensor_timestamp);
+        data.set(base + ANGLE, Double.doubleToRawLongBits(angle));
+        data.set(base + RATE, Double.doubleToRawLongBits(rate));
+        data.set(base + ACCEL_X, Double.doubleToRawLongBits(accel_x));
+        data.set(base + ACCEL_Y, Double.doubleToRawLongBits(accel_y));
+        data.set(base + ACCEL_Z, Double.doubleToRawLongBits(accel_z));
+        sequence.set(slot, 2 * n + 2);
+        count = n + 1;
+    }
+
+    /**
+     * Forgets all current samples, e.g. because the angle was reset and the
+     * old samples are no longer comparable to new ones.
+     */
+    public void clear() {
+        first = count;
+    }
+
+    /**
+     * Returns the interpolated angle at the given FPGA time.  Times after
+     * the newest sample return the newest angle, and times before the oldest
+     * sample return the oldest angle; no extrapolation is done.
+     * @return the angle in degrees, or NaN if there are no samples.
+     */
+    public double getAngleAt(double fpga_timestamp) {
+        long newest = count - 1;
+        long oldest = oldest(newest);
+        double later_time = 0.0;
+        double later_angle = Double.NaN;
+        for (long n = newest; n >= oldest; n--) {
+            int base = (int)(n & mask) * NUM_FIELDS;
+            long seq = sequence.get((int)(n & mask));
+            if (seq != 2 * n + 2) {
+                break;
+            }
+            double time = Double.longBitsToDouble(data.get(base + FPGA_TIMESTAMP));
+            double angle = Double.longBitsToDouble(data.get(base + ANGLE));
+            if (sequence.get((int)(n & mask)) != seq) {
+                break;
+            }
+            if (time <= fpga_timestamp) {
+                if (Double.isNaN(later_angle) || (later_time <= time)) {
+                    return angle;
+                }
+                return angle + (later_angle - angle) *
+                        ((fpga_timestamp - time) / (later_time - time));
+            }
+            later_time = time;
+            later_angle = angle;
+        }
+        return later_angle;
+    }
+
+    /**
+     * Copies samples received after the given FPGA time, oldest first.  If
+     * there are more samples than fit, the oldest ones are copied, so that
+     * calling again with the last copied timestamp returns the rest.
+     * Null entries in the array are filled with new samples.
+     * @return the number of samples copied.
+     */
+    public int getSamplesSince(double fpga_timestamp, TimestampedSample[] samples) {
+        long newest = count - 1;
+        long oldest = oldest(newest);
+        long start = newest + 1;
+        while (start > oldest) {
+            int base = (int)((start - 1) & mask) * NUM_FIELDS;
+            long seq = sequence.get((int)((start - 1) & mask));
+            double time = Double.longBitsToDouble(data.get(base + FPGA_TIMESTAMP));
+            if ((seq != 2 * start) || (sequence.get((int)((start - 1) & mask)) != seq) ||
+                    (time <= fpga_timestamp)) {
+                break;
+            }
+            start--;
+        }
+
+        int copied = 0;
+        for (long n = start; (n <= newest) && (copied < samples.length); n++) {
+            if (samples[copied] == null) {
+                samples[copied] = new TimestampedSample();
+            }
+            if (!read(n, samples[copied])) {
+                /* Overwritten while copying; skip to the next one */
+                continue;
+            }
+            copied++;
+        }
+        return copied;
+    }
+
+    /**
+     * @return the number of samples currently held.
+     */
+    public int size() {
+        long newest = count - 1;
+        return (int)(newest - oldest(newest) + 1);
+    }
+
+    /* Oldest sample number that may still be read.  One slot is left */
+    /* as margin for the writer.                                      */
+    private long oldest(long newest) {
+        return Math.max(first, newest - mask + 1);
+    }
+
+    private boolean read(long n, TimestampedSample sample) {
+        int slot = (int)(n & mask);
+        int base = slot * NUM_FIELDS;
+        long seq = sequence.get(slot);
+        if (seq != 2 * n + 2) {
+            return false;
+        }
+        sample.fpga_timestamp       = Double.longBitsToDouble(data.get(base + FPGA_TIMESTAMP));
+        sample.sensor_timestamp     = data.get(base + SENSOR_TIMESTAMP);
+        sample.angle                = Double.longBitsToDouble(data.get(base + ANGLE));
+        sample.rate                 = Double.longBitsToDouble(data.get(base + RATE));
+        sample.world_linear_accel_x = (float)Double.longBitsToDouble(data.get(base + ACCEL_X));
+        sample.world_linear_accel_y = (float)Double.longBitsToDouble(data.get(base + ACCEL_Y));
+        sample.world_linear_accel_z = (float)Double.longBitsToDouble(data.get(base + ACCEL_Z));
+        return sequence.get(slot) == seq;
+    }
+}
@@ -12,14 +12,16 @@ package com.kauailabs.navx.frc;
 import com.kauailabs.navx.AHRSProtocol;
 import com.kauailabs.navx.IMUProtocol;
 
+import java.util.function.Supplier;
+
 import edu.wpi.first.wpilibj.SerialPort;
 import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 
 class SerialIO implements IIOProvider {
 
-    SerialPort.Port serial_port_id;
-    SerialPort serial_port;
+    Supplier<ISerialPort> serial_port_factory;
+    ISerialPort serial_port;
     private byte next_integration_control_action;
     private boolean signal_transmit_integration_control;
     private boolean signal_retransmit_stream_config;
@@ -39,14 +41,34 @@ class SerialIO implements IIOProvider {
     IBoardCapabilities board_capabilities;
     double last_valid_packet_time;
 
+    /* Receive state; only used by the thread running run() */
+    private final SerialPacketFramer framer = new SerialPacketFramer();
+    private final SerialPacketFramer.PacketHandler packet_handler = this::decodePacket;
+    private final IMUProtocol.StreamResponse response = new IMUProtocol.StreamResponse();
+    private final AHRSProtocol.IntegrationControl integration_control = new AHRSProtocol.IntegrationControl();
+    private final AHRSProtocol.IntegrationControl integration_control_response = new AHRSProtocol.IntegrationControl();
+    private boolean stream_response_received;
+    private double last_second_start_time;
+    private int updates_in_last_second;
+    private int stream_response_receive_count;
+    private int integration_response_receive_count;
+
     final boolean debug = false; /* Set to true to enable debug output (to smart dashboard) */
     boolean is_usb;
     
     public SerialIO( SerialPort.Port port_id, byte update_rate_hz, boolean processed_data, IIOCompleteNotification notify_sink, IBoardCapabilities board_capabilities ) {
-        this.serial_port_id = port_id;
-        is_usb = ((port_id == SerialPort.Port.kUSB) ||
-        		  (port_id == SerialPort.Port.kUSB1)||
-        		  (port_id == SerialPort.Port.kUSB2));
+        this(() -> new SerialPort_RoboRIO(57600, port_id),
+                ((port_id == SerialPort.Port.kUSB) ||
+                 (port_id == SerialPort.Port.kUSB1)||
+                 (port_id == SerialPort.Port.kUSB2)),
+                update_rate_hz, processed_data, notify_sink, board_capabilities);
+    }
+
+    /* Runs against any serial port, e.g. a SerialPort_Replay.  The factory */
+    /* is invoked again whenever the port needs to be reset.               */
+    SerialIO( Supplier<ISerialPort> serial_port_factory, boolean is_usb, byte update_rate_hz, boolean processed_data, IIOCompleteNotification notify_sink, IBoardCapabilities board_capabilities ) {
+        this.serial_port_factory = serial_port_factory;
+        this.is_usb = is_usb;
         ypr_update_data = new IMUProtocol.YPRUpdate();
         gyro_update_data = new IMUProtocol.GyroUpdate();
         ahrs_update_data = new AHRSProtocol.AHRSUpdate();
@@ -65,7 +87,7 @@ class SerialIO implements IIOProvider {
         }
     }
     
-    protected SerialPort resetSerialPort()
+    protected ISerialPort resetSerialPort()
     {
         if (serial_port != null) {
             try {
@@ -79,11 +101,11 @@ class SerialIO implements IIOProvider {
         return serial_port;
     }
 
-    protected SerialPort getMaybeCreateSerialPort()
+    protected ISerialPort getMaybeCreateSerialPort()
     {
         if (serial_port == null) {
             try {
-                serial_port = new SerialPort(57600, serial_port_id);
+                serial_port = serial_port_factory.get();
                 serial_port.setReadBufferSize(256);
                 serial_port.setTimeout(1.0);
                 serial_port.enableTermination('\n');
@@ -153,22 +175,58 @@ class SerialIO implements IIOProvider {
         return packet_length;
     }    
 
+    /* Called by the framer for every complete packet in the receive buffer. */
+    private int decodePacket(byte[] received_data, int offset, int bytes_remaining) {
+        int packet_length = decodePacketHandler(received_data, offset, bytes_remaining);
+        if (packet_length > 0) {
+            update_count++;
+            last_valid_packet_time = Timer.getFPGATimestamp();
+            updates_in_last_second++;
+            if ((last_valid_packet_time - last_second_start_time ) > 1.0 ) {
+                if ( debug ) {
+                    SmartDashboard.putNumber("navX Updates Per Sec", (double)updates_in_last_second);
+                }
+                updates_in_last_second = 0;
+                last_second_start_time = last_valid_packet_time;
+            }
+            return packet_length;
+        }
+        packet_length = IMUProtocol.decodeStreamResponse(received_data, offset, bytes_remaining, response);
+        if (packet_length > 0) {
+            dispatchStreamResponse(response);
+            stream_response_received = true;
+            stream_response_receive_count++;
+            if ( debug ) {
+                SmartDashboard.putNumber("navX Stream Responses", (double)stream_response_receive_count);
+            }
+            return packet_length;
+        }
+        packet_length = AHRSProtocol.decodeIntegrationControlResponse( received_data, offset, bytes_remaining,
+                integration_control_response );
+        if ( packet_length > 0 ) {
+            // Confirmation of integration control
+            integration_response_receive_count++;
+            if ( debug ) {
+                SmartDashboard.putNumber("navX Integration Control Response Count", integration_response_receive_count);
+            }
+            if ((integration_control.action & AHRSProtocol.NAVX_INTEGRATION_CTL_RESET_YAW)!=0) {
+            	this.notify_sink.yawResetComplete();
+            }
+            return packet_length;
+        }
+        return 0;
+    }
+
     @SuppressWarnings("unused") /* The following variables are debug-only. */    
     public void run() {
 
         stop = false;
-        boolean stream_response_received = false;
+        stream_response_received = false;
         double last_stream_command_sent_timestamp = 0.0;
         double last_data_received_timestamp = 0;
-        double last_second_start_time = 0;
                
-        int partial_binary_packet_count = 0;
-        int stream_response_receive_count = 0;
         int timeout_count = 0;
-        int discarded_bytes_count = 0;
         int port_reset_count = 0;
-        int updates_in_last_second = 0;
-        int integration_response_receive_count = 0;
 
         try {
             serial_port.setReadBufferSize(256);
@@ -182,9 +240,7 @@ class SerialIO implements IIOProvider {
 
         byte[] stream_command = new byte[256];
         byte[] integration_control_command = new byte[256];
-        IMUProtocol.StreamResponse response = new IMUProtocol.StreamResponse();
-        AHRSProtocol.IntegrationControl integration_control = new AHRSProtocol.IntegrationControl();
-        AHRSProtocol.IntegrationControl integration_control_response = new AHRSProtocol.IntegrationControl();
+        framer.reset();
 
         int cmd_packet_length = IMUProtocol.encodeStreamCommand( stream_command, update_type, update_rate_hz ); 
         try {
@@ -202,9 +258,6 @@ class SerialIO implements IIOProvider {
             ex.printStackTrace();
         }
 
-        int remainder_bytes = 0;
-        byte[] remainder_data = null;
-
         while (!stop) {
             try {
 
@@ -234,230 +287,24 @@ class SerialIO implements IIOProvider {
                     }
                 }               
 
-                if ( !stop && ( remainder_bytes == 0 ) && ( serial_port.getBytesReceived() < 1 ) ) {
+                if ( !stop && ( framer.available() == 0 ) && ( serial_port.getBytesReceived() < 1 ) ) {
                     double update_rate = 1.0/((double)((int)(this.update_rate_hz & 0xFF)));
                     Timer.delay(update_rate);
                 }
 
-                int packets_received = 0;
                 byte[] received_data = serial_port.read(256);
                 int bytes_read = received_data.length;
                 byte_count += bytes_read;
 
-                /* If a partial packet remains from last iteration, place that at  */
-                /* the start of the data buffer, and append any new data available */
-                /* at the serial port.                                             */
-
-                if ( remainder_bytes > 0 ) {
-                    byte[] resized_array = new byte[remainder_bytes + bytes_read];
-                    System.arraycopy(remainder_data, 0, resized_array, 0, remainder_bytes);
-                    System.arraycopy(received_data, 0, resized_array, remainder_bytes, bytes_read);
-                    received_data = resized_array;
-                    bytes_read += remainder_bytes;
-                    remainder_bytes = 0;
-                    remainder_data = null;
-                }
+                /* Any partial packet from the last iteration is still in */
+                /* the framer; new data is added after it.                */
+                framer.append(received_data, bytes_read);
 
                 if (bytes_read > 0) {
                     last_data_received_timestamp = Timer.getFPGATimestamp();
-                    int i = 0;
-                    // Scan the buffer looking for valid packets
-                    while (i < bytes_read) {
-
-                        // Attempt to decode a packet
-
-                        int bytes_remaining = bytes_read - i;
-
-                        if ( received_data[i] != IMUProtocol.PACKET_START_CHAR ) {
-                            /* Skip over received bytes until a packet start is detected. */
-                            i++;
-                            discarded_bytes_count++;
-                            if ( debug ) {
-                                SmartDashboard.putNumber("navX Discarded Bytes", (double)discarded_bytes_count);
-                            }
-                            continue;
-                        } else {
-                            if ( ( bytes_remaining > 2 ) && 
-                                    ( received_data[i+1] == AHRSProtocol.BINARY_PACKET_INDICATOR_CHAR ) ) {
-                                /* Binary packet received; next byte is packet length-2 */
-                                byte total_expected_binary_data_bytes = received_data[i+2];
-                                total_expected_binary_data_bytes += 2;
-                                while ( bytes_remaining < total_expected_binary_data_bytes ) {
-
-                                    /* This binary packet contains an embedded     */
-                                    /* end-of-line character.  Continue to receive */
-                                    /* more data until entire packet is received.  */
-                                    byte[] additional_received_data = serial_port.read(256);
-                                    byte_count += additional_received_data.length;
-                                    bytes_remaining += additional_received_data.length;
-
-                                    /* Resize array to hold existing and new data */
-                                    byte[] c = new byte[received_data.length + additional_received_data.length];
-                                    if ( c.length > 0 ) {
-                                        System.arraycopy(received_data, 0, c, 0, received_data.length);
-                                        System.arraycopy(additional_received_data, 0, c, received_data.length, additional_received_data.length);
-                                        received_data = c;
-                                    } else {
-                                        /* Timeout waiting for remainder of binary packet */
-                                        i++;
-                                        bytes_remaining--;
-                                        partial_binary_packet_count++;
-                                        if ( debug ) {
-                                            SmartDashboard.putNumber("navX Partial Binary Packets", (double)partial_binary_packet_count);
-                                        }
-                                        continue;
-                                    }
-                                }
-                            }
-                        }
-
-                        int packet_length = decodePacketHandler(received_data,i,bytes_remaining);
-                        if (packet_length > 0) {
-                            packets_received++;
-                            update_count++;
-                            last_valid_packet_time = Timer.getFPGATimestamp();
-                            updates_in_last_second++;
-                            if ((last_valid_packet_time - last_second_start_time ) > 1.0 ) {
-                                if ( debug ) {
-                                    SmartDashboard.putNumber("navX Updates Per Sec", (double)updates_in_last_second);
-                                }
-                                updates_in_last_second = 0;
-                                last_second_start_time = last_valid_packet_time;
-                            }
-                            i += packet_length;
-                        } 
-                        else 
-                        {
-                            packet_length = IMUProtocol.decodeStreamResponse(received_data, i, bytes_remaining, response);
-                            if (packet_length > 0) {
-                                packets_received++;
-                                dispatchStreamResponse(response);
-                                stream_response_received = true;
-                                i += packet_length;
-                                stream_response_receive_count++;
-                                if ( debug ) {
-                                    SmartDashboard.putNumber("navX Stream Responses", (double)stream_response_receive_count);                                
-                                }
-                            }
-                            else {
-                                packet_length = AHRSProtocol.decodeIntegrationControlResponse( received_data, i, bytes_remaining,
-                                        integration_control_response );
-                                if ( packet_length > 0 ) {
-                                    // Confirmation of integration control
-                                    integration_response_receive_count++;
-                                    if ( debug ) {
-                                        SmartDashboard.putNumber("navX Integration Control Response Count", integration_response_receive_count);
-                                    }
-                                    i += packet_length;
-                                    if ((integration_control.action & AHRSProtocol.NAVX_INTEGRATION_CTL_RESET_YAW)!=0) {
-                                    	this.notify_sink.yawResetComplete();
-                                    }                    
-                                } else {
-                                    /* Even though a start-of-packet indicator was found, the  */
-                                    /* current index is not the start of a packet if interest. */
-                                    /* Scan to the beginning of the next packet,               */
-                                    boolean next_packet_start_found = false;
-                                    int x;
-                                    for ( x = 0; x < bytes_remaining; x++ ) {
-                                        if ( received_data[i + x] != IMUProtocol.PACKET_START_CHAR) {
-                                            x++;
-                                        } else {
-                                            i += x;
-                                            bytes_remaining -= x;
-                                            if ( x != 0 ) {
-                                                next_packet_start_found = true;
-                                            }
-                                            break;
-                                        }
-                                    }
-                                    boolean discard_remainder = false;
-                                    if ( !next_packet_start_found && x == bytes_remaining ) {
-                                        /* Remaining bytes don't include a start-of-packet */
-                                        discard_remainder = true;
-                                    }
-                                    boolean partial_packet = false;
-                                    if ( discard_remainder ) {
-                                        /* Discard the remainder */
-                                        i = bytes_remaining;
-                                    } else {                                    
-                                        if ( !next_packet_start_found ) {
-                                            /* This occurs when packets are received that are not decoded.   */
-                                            /* Bump over this packet and prepare for the next.               */
-                                            if ( ( bytes_remaining > 2 ) && 
-                                                    ( received_data[i+1] == AHRSProtocol.BINARY_PACKET_INDICATOR_CHAR ) ) {
-                                                /* Binary packet received; next byte is packet length-2 */
-                                                int pkt_len = received_data[i+2];
-                                                pkt_len += 2;
-                                                if ( bytes_remaining >= pkt_len ) {
-                                                    bytes_remaining -= pkt_len;
-                                                    i += pkt_len;
-                                                    discarded_bytes_count += pkt_len;
-                                                    if ( debug ) {
-                                                        SmartDashboard.putNumber("navX Discarded Bytes", (double)discarded_bytes_count);
-                                                    }
-                                                } else {
-                                                    /* This is the initial portion of a partial binary packet. */
-                                                    /* Keep this data and attempt to acquire the remainder.    */
-                                                    partial_packet = true;
-                                                }
-                                            } else {
-                                                /* Ascii packet received. */
-                                                /* Scan up to and including next end-of-packet character       */
-                                                /* sequence, or the beginning of a new packet.                 */
-                                                for ( x = 0; x < bytes_remaining; x++ ) {
-                                                    if ( received_data[i+x] == (byte)'\r') {
-                                                        i += x+1;
-                                                        bytes_remaining -= (x+1);
-                                                        discarded_bytes_count += x+1;
-                                                        if ( ( bytes_remaining > 0 ) &&  received_data[i] == (byte)'\n') {
-                                                            bytes_remaining--;
-                                                            i++;
-                                                            discarded_bytes_count++;
-                                                        }
-                                                        if ( debug ) {
-                                                            SmartDashboard.putNumber("navX Discarded Bytes", (double)discarded_bytes_count);
-                                                        }
-                                                        break;
-                                                    }
-                                                    /* If a new start-of-packet is found, discard */
-                                                    /* the ascii packet bytes that precede it.    */
-                                                    if ( received_data[i+x] == (byte)'!') {
-                                                        if ( x > 0 ) {
-                                                            i += x;
-                                                            bytes_remaining -= x;
-                                                            discarded_bytes_count += x;
-                                                            break;
-                                                        } else {
-                                                            /* start of packet found, but no termination     */
-                                                            /* Time to get some more data, unless the bytes  */
-                                                            /* remaining are larger than a valid packet size */
-                                                            if ( bytes_remaining < IMUProtocol.IMU_PROTOCOL_MAX_MESSAGE_LENGTH ) {
-                                                                /* Get more data */
-                                                                partial_packet = true;
-                                                            } else {
-                                                                i++;
-                                                                bytes_remaining--;
-                                                            }
-                                                            break;
-                                                        }
-                                                    }
-                                                }
-                                                if ( x == bytes_remaining ) {
-                                                    /* Partial ascii packet - keep the remainder */
-                                                    partial_packet = true;
-                                                }
-                                            }
-                                        }
-                                    }
-                                    if ( partial_packet ) {
-                                        remainder_data = new byte[bytes_remaining];
-                                        System.arraycopy(received_data,i,remainder_data,0,bytes_remaining);
-                                        remainder_bytes = bytes_remaining;
-                                        i = bytes_read;
-                                    }
-                                }
-                            }
-                        }
+                    int packets_received = framer.process(packet_handler);
+                    if ( debug ) {
+                        SmartDashboard.putNumber("navX Discarded Bytes", (double)framer.getDiscardedByteCount());
                     }
 
                     if ( ( packets_received == 0 ) && ( bytes_read == 256 ) ) {
@@ -467,6 +314,7 @@ class SerialIO implements IIOProvider {
                         // reset the serial port.
                         serial_port.flush();
                         serial_port.reset();
+                        framer.reset();
                         port_reset_count++;                        
                         if ( debug ) {
                             SmartDashboard.putNumber("navX Port Resets", (double)port_reset_count);
@@ -574,6 +422,22 @@ class SerialIO implements IIOProvider {
         return update_count;
     }
 
+    /**
+     * Always 0, since serial updates are sent by the navX MXP rather
+     * than polled.
+     */
+    public long getDuplicateReadCount() {
+        return 0;
+    }
+
+    /**
+     * Always 0; serial updates don't all carry sensor timestamps, so
+     * missed updates can't be detected.
+     */
+    public long getMissedSampleCount() {
+        return 0;
+    }
+
     @Override
     public void setUpdateRateHz(byte update_rate) {
         update_rate_hz = update_rate;
@@ -0,0 +1,163 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) Kauai Labs 2015. All Rights Reserved.                        */
+/*                                                                            */
+/* Created in support of Team 2465 (Kauaibots).  Go Purple Wave!              */
+/*                                                                            */
+/* Open Source Software - may be modified and shared by FRC teams. Any        */
+/* modifications to this code must be accompanied by the \License.txt file    */
+/* in the root directory of the project.                                      */
+/*----------------------------------------------------------------------------*/
+package com.kauailabs.navx.frc;
+
+import com.kauailabs.navx.AHRSProtocol;
+import com.kauailabs.navx.IMUProtocol;
+
+/**
+ * Splits a stream of serial bytes into navX packets.  Bytes are appended to
+ * one fixed size receive buffer, and packets are decoded straight out of it,
+ * so nothing is allocated or copied per packet.  A packet that is split
+ * across reads stays in the buffer until the rest of it arrives; only then
+ * are the leftover bytes moved to the front of the buffer, to make room.
+ *
+ * A packet starts with '!'.  Binary packets ('!#') carry their length in
+ * the third byte, and ascii packets end in "\r\n".  Anything that can't be
+ * decoded (unknown or corrupted packets, bytes between packets) is skipped
+ * up to the next start of packet, and counted as discarded.
+ */
+class SerialPacketFramer {
+
+    interface PacketHandler {
+        /**
+         * Decodes the packet at offset.
+         * @return the length of the packet, or 0 if it isn't a valid packet.
+         */
+        int decode(byte[] buffer, int offset, int bytes_remaining);
+    }
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final byte[] buffer;
+    private int start;
+    private int end;
+    private long discarded_bytes;
+    private long packets;
+
+    public SerialPacketFramer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public SerialPacketFramer(int capacity) {
+        buffer = new byte[capacity];
+    }
+
+    /**
+     * Adds received bytes after any that haven't been decoded yet.  If the
+     * buffer would overflow, the oldest undecoded bytes are discarded.
+     */
+    public void append(byte[] data, int length) {
+        if (length > buffer.length) {
+            discarded_bytes += (end - start) + (length - buffer.length);
+            System.arraycopy(data, length - buffer.length, buffer, 0, buffer.length);
+            start = 0;
+            end = buffer.length;
+            return;
+        }
+        if (end + length > buffer.length) {
+            int overflow = (end - start) + length - buffer.length;
+            if (overflow > 0) {
+                start += overflow;
+                discarded_bytes += overflow;
+            }
+            System.arraycopy(buffer, start, buffer, 0, end - start);
+            end -= start;
+            start = 0;
+        }
+        System.arraycopy(data, 0, buffer, end, length);
+        end += length;
+    }
+
+    /**
+     * Decodes every complete packet in the buffer.  A partial packet at the
+     * end is kept for the next call.
+     * @return the number of packets that were decoded.
+     */
+    public int process(PacketHandler handler) {
+        int decoded = 0;
+        while (start < end) {
+            int remaining = end - start;
+            if (buffer[start] != IMUProtocol.PACKET_START_CHAR) {
+                start++;
+                discarded_bytes++;
+                continue;
+            }
+
+            if (!isComplete(start, remaining)) {
+                break;
+            }
+
+            int packet_length;
+            try {
+                packet_length = handler.decode(buffer, start, remaining);
+            } catch (RuntimeException ex) {
+                /* Garbage that passed the checksum but can't be decoded */
+                /* (e.g., a bad ascii number); it must still be skipped, */
+                /* or it would be decoded again on every call.           */
+                packet_length = 0;
+            }
+            if (packet_length > 0) {
+                start += packet_length;
+                decoded++;
+            } else {
+                /* Unknown or corrupt; resync at the next start of packet */
+                start++;
+                discarded_bytes++;
+            }
+        }
+        if (start == end) {
+            start = 0;
+            end = 0;
+        }
+        packets += decoded;
+        return decoded;
+    }
+
+    /* Whether all of the packet starting at offset has been received. */
+    private boolean isComplete(int offset, int remaining) {
+        if (remaining < 3) {
+            return false;
+        }
+        if (buffer[offset + 1] == AHRSProtocol.BINARY_PACKET_INDICATOR_CHAR) {
+            int total_length = (buffer[offset + 2] & 0xFF) + 2;
+            /* A length that can't fit is corrupt, and is decoded (and */
+            /* discarded) right away instead of waiting forever.       */
+            return remaining >= total_length || total_length > buffer.length;
+        }
+        for (int x = 1; x < remaining; x++) {
+            if (buffer[offset + x] == (byte) '\n'
+                    || buffer[offset + x] == IMUProtocol.PACKET_START_CHAR) {
+                return true;
+            }
+        }
+        return remaining >= IMUProtocol.IMU_PROTOCOL_MAX_MESSAGE_LENGTH;
+    }
+
+    /**
+     * @return the number of bytes waiting to be decoded.
+     */
+    public int available() {
+        return end - start;
+    }
+
+    public long getDiscardedByteCount() {
+        return discarded_bytes;
+    }
+
+    public long getPacketCount() {
+        return packets;
+    }
+
+    public void reset() {
+        start = 0;
+        end = 0;
+    }
+}
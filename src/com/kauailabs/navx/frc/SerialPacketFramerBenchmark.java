@@ -0,0 +1,244 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) Kauai Labs 2015. All Rights Reserved.                        */
+/*                                                                            */
+/* Created in support of Team 2465 (Kauaibots).  Go Purple Wave!              */
+/*                                                                            */
+/* Open Source Software - may be modified and shared by FRC teams. Any        */
+/* modifications to this code must be accompanied by the \License.txt file    */
+/* in the root directory of the project.                                      */
+/*----------------------------------------------------------------------------*/
+package com.kauailabs.navx.frc;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import com.kauailabs.navx.AHRSProtocol;
+import com.kauailabs.navx.IMUProtocol;
+
+/**
+ * Replays a generated serial stream through a SerialPort_Replay and a
+ * SerialPacketFramer, read in every chunk size from 1 to 256 bytes, and
+ * checks that every valid packet is decoded, in order, with the values it
+ * was encoded with.  The stream mixes binary AHRSPos timestamped updates,
+ * ascii yaw/pitch/roll updates, packets with bad checksums, packets cut off
+ * part way, and garbage bytes.  The one byte checksum passes about one in
+ * 256 damaged packets, and such a packet would hide the valid one after it,
+ * so the damaged bytes that would pass are found with a plain scan of the
+ * whole stream and changed before the run.  Packets per second and bytes
+ * allocated per
+ * packet (including the arrays the port returns from read()) are reported
+ * for some of the chunk sizes:
+ *
+ *     java com.kauailabs.navx.frc.SerialPacketFramerBenchmark [packets] [seed]
+ *
+ * Exits with status 1 if any chunk size loses, reorders or invents a packet.
+ */
+class SerialPacketFramerBenchmark {
+
+    /* AHRSPos timestamped update layout (see AHRSProtocol) */
+    static final int TS_LENGTH          = 94;
+    static final int TS_YAW_INDEX       = 4;
+    static final int TS_TIMESTAMP_INDEX = 86;
+    static final int TS_CHECKSUM_INDEX  = 90;
+    /* Yaw/pitch/roll update layout (see IMUProtocol) */
+    static final int YPR_LENGTH         = 34;
+    static final int YPR_YAW_INDEX      = 2;
+    static final int YPR_CHECKSUM_INDEX = 30;
+
+    /* 16.16 fixed point can't hold every hundredth exactly */
+    static final float YAW_TOLERANCE = 0.001f;
+
+    static final int MAX_CHUNK_SIZE = 256;
+    static final int[] REPORTED_CHUNK_SIZES = {1, 4, 16, 64, 256};
+
+    public static void main(String[] args) {
+        int packets = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 2465;
+
+        List<Float> expected = new ArrayList<Float>();
+        List<Integer> starts = new ArrayList<Integer>();
+        byte[] stream = generate(new Random(seed), packets, expected, starts);
+        int collisions = removeChecksumCollisions(stream, starts);
+        System.out.println(stream.length + " bytes, " + expected.size() + " valid packets, " +
+                collisions + " checksum collisions removed");
+
+        /* Warm up, so the JIT has compiled the framing and decode path. */
+        for ( int i = 0; i < 20; i++ ) {
+            run(stream, expected, 64);
+        }
+
+        boolean passed = true;
+        System.out.println("chunk   packets/s   bytes/packet   discarded bytes");
+        for ( int chunk = 1; chunk <= MAX_CHUNK_SIZE; chunk++ ) {
+            long bytes_before = RegisterIOBenchmark.allocatedBytes();
+            long start = System.nanoTime();
+            Result result = run(stream, expected, chunk);
+            long elapsed = System.nanoTime() - start;
+            long bytes_after = RegisterIOBenchmark.allocatedBytes();
+
+            if ( result.error != null ) {
+                System.out.println("chunk " + chunk + ": " + result.error);
+                passed = false;
+            }
+            for ( int reported : REPORTED_CHUNK_SIZES ) {
+                if ( chunk == reported ) {
+                    String bytes = bytes_before < 0 ? "n/a" :
+                            String.format("%.1f", (double)(bytes_after - bytes_before) / expected.size());
+                    System.out.printf("%5d %11.0f %14s %17d%n", chunk,
+                            expected.size() / (elapsed / 1e9), bytes, result.discarded_bytes);
+                }
+            }
+        }
+        System.out.println(passed ? "PASS: every valid packet decoded at every chunk size" : "FAIL");
+        if ( !passed ) {
+            System.exit(1);
+        }
+    }
+
+    static class Result {
+        String error;
+        long discarded_bytes;
+    }
+
+    /* Decodes the packet types in the stream, keeping the yaw of the last. */
+    static class Decoder implements SerialPacketFramer.PacketHandler {
+        final IMUProtocol.YPRUpdate ypr = new IMUProtocol.YPRUpdate();
+        final AHRSProtocol.AHRSPosTSUpdate ahrspos_ts = new AHRSProtocol.AHRSPosTSUpdate();
+        float yaw;
+
+        public int decode(byte[] buffer, int offset, int bytes_remaining) {
+            int packet_length;
+            if ( (packet_length = AHRSProtocol.decodeAHRSPosTSUpdate(buffer, offset, bytes_remaining, ahrspos_ts)) > 0 ) {
+                yaw = ahrspos_ts.yaw;
+            } else if ( (packet_length = IMUProtocol.decodeYPRUpdate(buffer, offset, bytes_remaining, ypr)) > 0 ) {
+                yaw = ypr.yaw;
+            }
+            return packet_length;
+        }
+    }
+
+    /* Feeds the stream through the framer, reading chunk bytes at a time. */
+    static Result run(byte[] stream, final List<Float> expected, int chunk) {
+        final Result result = new Result();
+        final int[] next = new int[1];
+        SerialPacketFramer.PacketHandler handler = new Decoder() {
+            public int decode(byte[] buffer, int offset, int bytes_remaining) {
+                int packet_length = super.decode(buffer, offset, bytes_remaining);
+                if ( packet_length == 0 ) {
+                    return 0;
+                }
+                if ( result.error == null ) {
+                    if ( next[0] >= expected.size() ) {
+                        result.error = "decoded an extra packet (yaw " + yaw + ")";
+                    } else if ( Math.abs(expected.get(next[0]) - yaw) > YAW_TOLERANCE ) {
+                        result.error = "packet " + next[0] + " decoded as yaw " + yaw +
+                                ", expected " + expected.get(next[0]);
+                    }
+                }
+                next[0]++;
+                return packet_length;
+            }
+        };
+
+        SerialPort_Replay port = new SerialPort_Replay(stream, 0, false);
+        SerialPacketFramer framer = new SerialPacketFramer();
+        while ( port.getBytesReceived() > 0 ) {
+            byte[] received = port.read(chunk);
+            framer.append(received, received.length);
+            framer.process(handler);
+        }
+        if ( result.error == null && next[0] != expected.size() ) {
+            result.error = "decoded " + next[0] + " of " + expected.size() + " packets";
+        }
+        result.discarded_bytes = framer.getDiscardedByteCount();
+        return result;
+    }
+
+    /* Scans the whole stream the way the framer does, and wherever damaged */
+    /* bytes would decode as a packet, changes their start of packet       */
+    /* character, until only the valid packets decode.                     */
+    static int removeChecksumCollisions(byte[] stream, List<Integer> starts) {
+        Decoder decoder = new Decoder();
+        int collisions = 0;
+        int next_start = 0;
+        int offset = 0;
+        while ( offset < stream.length ) {
+            int packet_length = 0;
+            if ( stream[offset] == IMUProtocol.PACKET_START_CHAR ) {
+                try {
+                    packet_length = decoder.decode(stream, offset, stream.length - offset);
+                } catch (RuntimeException ex) {
+                    packet_length = 0;
+                }
+            }
+            if ( packet_length == 0 ) {
+                offset++;
+            } else if ( next_start < starts.size() && starts.get(next_start) == offset ) {
+                next_start++;
+                offset += packet_length;
+            } else {
+                stream[offset] = ' ';
+                collisions++;
+            }
+        }
+        return collisions;
+    }
+
+    /* Builds the stream; the yaw and offset of each valid packet are added */
+    /* to expected and starts.                                              */
+    static byte[] generate(Random random, int packets, List<Float> expected, List<Integer> starts) {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for ( int i = 0; i < packets; i++ ) {
+            /* Whole hundredths, which the ascii encoding holds exactly */
+            float yaw = (random.nextInt(36000) - 18000) / 100.0f;
+            boolean binary = random.nextInt(3) != 0;
+            byte[] packet = binary ? binaryPacket(yaw, i) : asciiPacket(yaw);
+            int kind = random.nextInt(20);
+            if ( kind == 0 ) {
+                /* Bad checksum */
+                packet[4 + random.nextInt(packet.length - 8)] ^= 0x55;
+                stream.write(packet, 0, packet.length);
+            } else if ( kind == 1 ) {
+                /* Cut off part way */
+                stream.write(packet, 0, 1 + random.nextInt(packet.length - 2));
+            } else if ( kind == 2 ) {
+                /* Garbage, which may include start of packet characters */
+                byte[] garbage = new byte[1 + random.nextInt(40)];
+                random.nextBytes(garbage);
+                stream.write(garbage, 0, garbage.length);
+            } else {
+                starts.add(stream.size());
+                stream.write(packet, 0, packet.length);
+                expected.add(yaw);
+            }
+        }
+        return stream.toByteArray();
+    }
+
+    static byte[] binaryPacket(float yaw, int sequence) {
+        byte[] packet = new byte[TS_LENGTH];
+        packet[0] = IMUProtocol.PACKET_START_CHAR;
+        packet[1] = AHRSProtocol.BINARY_PACKET_INDICATOR_CHAR;
+        packet[2] = TS_LENGTH - 2;
+        packet[3] = AHRSProtocol.MSGID_AHRSPOS_TS_UPDATE;
+        AHRSProtocol.encodeBinaryUint32(Math.round(yaw * 65536), packet, TS_YAW_INDEX);
+        AHRSProtocol.encodeBinaryUint32(sequence * 5, packet, TS_TIMESTAMP_INDEX);
+        IMUProtocol.encodeTermination(packet, TS_LENGTH, TS_CHECKSUM_INDEX);
+        return packet;
+    }
+
+    static byte[] asciiPacket(float yaw) {
+        byte[] packet = new byte[YPR_LENGTH];
+        packet[0] = IMUProtocol.PACKET_START_CHAR;
+        packet[1] = IMUProtocol.MSGID_YPR_UPDATE;
+        String fields = String.format(Locale.US, "%+07.2f%+07.2f%+07.2f%07.2f", yaw, 0.0f, 0.0f, 0.0f);
+        for ( int i = 0; i < fields.length(); i++ ) {
+            packet[YPR_YAW_INDEX + i] = (byte)fields.charAt(i);
+        }
+        IMUProtocol.encodeTermination(packet, YPR_LENGTH, YPR_CHECKSUM_INDEX);
+        return packet;
+    }
+}
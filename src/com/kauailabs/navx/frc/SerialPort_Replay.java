@@ -0,0 +1,118 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) Kauai Labs 2015. All Rights Reserved.                        */
+/*                                                                            */
+/* Created in support of Team 2465 (Kauaibots).  Go Purple Wave!              */
+/*                                                                            */
+/* Open Source Software - may be modified and shared by FRC teams. Any        */
+/* modifications to this code must be accompanied by the \License.txt file    */
+/* in the root directory of the project.                                      */
+/*----------------------------------------------------------------------------*/
+package com.kauailabs.navx.frc;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Stands in for a serial port by playing back a recorded byte stream (e.g.,
+ * a raw capture of a navX-Model device's serial output), so that SerialIO
+ * and the protocol decoders can be run without a device.
+ *
+ * Bytes become available at a configurable rate, measured from the first
+ * time the port is read; a rate of 0 makes the whole stream available at
+ * once.  Anything written to the port is counted and discarded.
+ */
+class SerialPort_Replay implements ISerialPort {
+
+    private final byte[] data;
+    private final boolean loop;
+    private volatile double bytes_per_second;
+    private int position;
+    private long start_time_ns = -1;
+    private long bytes_before_start;
+    private long bytes_read;
+    private long bytes_written;
+
+    public SerialPort_Replay( byte[] data, double bytes_per_second, boolean loop ) {
+        this.data = data;
+        this.bytes_per_second = bytes_per_second;
+        this.loop = loop;
+    }
+
+    public static SerialPort_Replay load( File file, double bytes_per_second, boolean loop ) throws IOException {
+        return new SerialPort_Replay(Files.readAllBytes(file.toPath()), bytes_per_second, loop);
+    }
+
+    /* Changes the playback rate; 0 makes all remaining bytes available. */
+    public synchronized void setRate( double bytes_per_second ) {
+        bytes_before_start = bytes_read;
+        start_time_ns = -1;
+        this.bytes_per_second = bytes_per_second;
+    }
+
+    public synchronized long getBytesRead() {
+        return bytes_read;
+    }
+
+    public synchronized long getBytesWritten() {
+        return bytes_written;
+    }
+
+    @Override
+    public void setReadBufferSize(int size) {
+    }
+
+    @Override
+    public void setTimeout(double timeout) {
+    }
+
+    @Override
+    public void enableTermination(char terminator) {
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void reset() {
+    }
+
+    @Override
+    public synchronized int write(byte[] buffer, int count) {
+        bytes_written += count;
+        return count;
+    }
+
+    @Override
+    public synchronized int getBytesReceived() {
+        if ( loop && ( position == data.length ) ) {
+            position = 0;
+        }
+        long available = data.length - position;
+        if ( bytes_per_second > 0 ) {
+            long now = System.nanoTime();
+            if ( start_time_ns < 0 ) {
+                start_time_ns = now;
+            }
+            long due = bytes_before_start +
+                    (long)((now - start_time_ns) * bytes_per_second / 1e9);
+            available = Math.min(available, due - bytes_read);
+        }
+        return (int)Math.max(0, Math.min(available, Integer.MAX_VALUE));
+    }
+
+    @Override
+    public synchronized byte[] read(int count) {
+        int length = Math.min(count, getBytesReceived());
+        byte[] received = new byte[length];
+        System.arraycopy(data, position, received, 0, length);
+        position += length;
+        bytes_read += length;
+        return received;
+    }
+
+    @Override
+    public void free() {
+    }
+}
@@ -0,0 +1,66 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) Kauai Labs 2015. All Rights Reserved.                        */
+/*                                                                            */
+/* Created in support of Team 2465 (Kauaibots).  Go Purple Wave!              */
+/*                                                                            */
+/* Open Source Software - may be modified and shared by FRC teams. Any        */
+/* modifications to this code must be accompanied by the \License.txt file    */
+/* in the root directory of the project.                                      */
+/*----------------------------------------------------------------------------*/
+package com.kauailabs.navx.frc;
+
+import edu.wpi.first.wpilibj.SerialPort;
+
+class SerialPort_RoboRIO implements ISerialPort {
+
+    SerialPort port;
+
+    public SerialPort_RoboRIO( int baud_rate, SerialPort.Port port_id ) {
+        port = new SerialPort(baud_rate, port_id);
+    }
+
+    @Override
+    public void setReadBufferSize(int size) {
+        port.setReadBufferSize(size);
+    }
+
+    @Override
+    public void setTimeout(double timeout) {
+        port.setTimeout(timeout);
+    }
+
+    @Override
+    public void enableTermination(char terminator) {
+        port.enableTermination(terminator);
+    }
+
+    @Override
+    public void flush() {
+        port.flush();
+    }
+
+    @Override
+    public void reset() {
+        port.reset();
+    }
+
+    @Override
+    public int write(byte[] buffer, int count) {
+        return port.write(buffer, count);
+    }
+
+    @Override
+    public int getBytesReceived() {
+        return port.getBytesReceived();
+    }
+
+    @Override
+    public byte[] read(int count) {
+        return port.read(count);
+    }
+
+    @Override
+    public void free() {
+        port.free();
+    }
+}
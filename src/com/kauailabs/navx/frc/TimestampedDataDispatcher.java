@@ -0,0 +1,279 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) Kauai Labs 2015. All Rights Reserved.                        */
+/*                                                                            */
+/* Created in support of Team 2465 (Kauaibots).  Go Purple Wave!              */
+/*                                                                            */
+/* Open Source Software - may be modified and shared by FRC teams. Any        */
+/* modifications to this code must be accompanied by the \License.txt file    */
+/* in the root directory of the project.                                      */
+/*----------------------------------------------------------------------------*/
+package com.kauailabs.navx.frc;
+
+import java.util.concurrent.locks.LockSupport;
+
+import com.kauailabs.navx.AHRSProtocol;
+import com.kauailabs.navx.AHRSProtocol.AHRSUpdateBase;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Delivers sensor data to ITimestampedDataSubscribers.
+ *
+ * Subscriptions are kept in a copy-on-write array:  registering and
+ * deregistering copy the array (under a lock), while publishing (on the IO
+ * thread) just reads the current array, without locking or allocating.
+ *
+ * A subscription is either direct, in which case the subscriber is invoked
+ * on the IO thread, or queued.  Queued subscriptions have a bounded queue of
+ * preallocated entries; the IO thread copies each update into the queue, and
+ * a separate dispatcher thread invokes the subscriber.  A slow queued
+ * subscriber therefore can't delay the next sensor read.  If its queue is
+ * full, new updates are dropped (and counted) until it catches up.
+ */
+class TimestampedDataDispatcher {
+
+    private static final Subscription[] NO_SUBSCRIPTIONS = new Subscription[0];
+    /* How long the dispatcher thread sleeps if it isn't woken up. */
+    private static final long IDLE_TIMEOUT_NS = 100000000L;
+
+    private volatile Subscription[] subscriptions = NO_SUBSCRIPTIONS;
+    private volatile Thread dispatcher;
+
+    static class Subscription {
+        final ITimestampedDataSubscriber callback;
+        final Object context;
+        final Entry[] queue;
+        /* Written only by the IO thread */
+        volatile long tail;
+        /* Written only by the dispatcher thread */
+        volatile long head;
+        volatile long delivered;
+        volatile long dropped;
+        volatile double last_lag_ms;
+        volatile double max_lag_ms;
+        volatile boolean active = true;
+
+        Subscription(ITimestampedDataSubscriber callback, Object context, int queue_depth) {
+            this.callback = callback;
+            this.context = context;
+            if (queue_depth > 0) {
+                queue = new Entry[queue_depth];
+                for (int i = 0; i < queue_depth; i++) {
+                    queue[i] = new Entry();
+                }
+            } else {
+                queue = null;
+            }
+        }
+
+        boolean isQueued() {
+            return queue != null;
+        }
+    }
+
+    /* A queued update.  One of each update type is preallocated, since */
+    /* the IO classes reuse their update objects.                       */
+    static class Entry {
+        long system_timestamp;
+        long sensor_timestamp;
+        AHRSUpdateBase data;
+        final AHRSProtocol.AHRSUpdate ahrs_update = new AHRSProtocol.AHRSUpdate();
+        final AHRSProtocol.AHRSPosUpdate ahrspos_update = new AHRSProtocol.AHRSPosUpdate();
+        final AHRSProtocol.AHRSPosTSUpdate ahrspos_ts_update = new AHRSProtocol.AHRSPosTSUpdate();
+    }
+
+    /**
+     * Adds a subscriber.  A queue_depth of 0 delivers updates directly on
+     * the IO thread; otherwise updates are delivered on the dispatcher
+     * thread, with up to queue_depth updates waiting.
+     * @return false if the subscriber was already registered.
+     */
+    public synchronized boolean register(ITimestampedDataSubscriber callback,
+            Object context, int queue_depth) {
+        if ((callback == null) || (find(callback) != null)) {
+            return false;
+        }
+        Subscription subscription = new Subscription(callback, context, queue_depth);
+        Subscription[] current = subscriptions;
+        Subscription[] updated = new Subscription[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, current.length);
+        updated[current.length] = subscription;
+        subscriptions = updated;
+        if (subscription.isQueued() && (dispatcher == null)) {
+            Thread thread = new Thread(null, this::dispatch, "navXCallbackThread");
+            thread.setDaemon(true);
+            dispatcher = thread;
+            thread.start();
+        }
+        return true;
+    }
+
+    /**
+     * Removes a subscriber.  Updates still in its queue are discarded.
+     * @return false if the subscriber was not registered.
+     */
+    public synchronized boolean deregister(ITimestampedDataSubscriber callback) {
+        Subscription[] current = subscriptions;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].callback == callback) {
+                Subscription[] updated = new Subscription[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                current[i].active = false;
+                subscriptions = updated;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the subscription for a subscriber, or null.
+     */
+    public Subscription find(ITimestampedDataSubscriber callback) {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.callback == callback) {
+                return subscription;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sends an update to every subscriber.  Invoked on the IO thread.
+     */
+    public void publish(long system_timestamp, long sensor_timestamp, AHRSUpdateBase data) {
+        boolean queued = false;
+        for (Subscription subscription : subscriptions) {
+            if (subscription.isQueued()) {
+                offer(subscription, system_timestamp, sensor_timestamp, data);
+                queued = true;
+            } else {
+                try {
+                    subscription.callback.timestampedDataReceived(system_timestamp,
+                            sensor_timestamp, data, subscription.context);
+                } catch (RuntimeException ex) {
+                    ex.printStackTrace();
+                }
+                subscription.delivered++;
+            }
+        }
+        Thread thread = dispatcher;
+        if (queued && (thread != null)) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private static void offer(Subscription subscription, long system_timestamp,
+            long sensor_timestamp, AHRSUpdateBase data) {
+        long tail = subscription.tail;
+        if (tail - subscription.head >= subscription.queue.length) {
+            subscription.dropped++;
+            return;
+        }
+        Entry entry = subscription.queue[(int)(tail % subscription.queue.length)];
+        entry.system_timestamp = system_timestamp;
+        entry.sensor_timestamp = sensor_timestamp;
+        entry.data = copy(data, entry);
+        /* Publishes the entry to the dispatcher thread */
+        subscription.tail = tail + 1;
+    }
+
+    private void dispatch() {
+        while (true) {
+            boolean delivered = false;
+            for (Subscription subscription : subscriptions) {
+                if (subscription.isQueued()) {
+                    delivered |= drain(subscription);
+                }
+            }
+            if (!delivered) {
+                LockSupport.parkNanos(this, IDLE_TIMEOUT_NS);
+            }
+        }
+    }
+
+    private static boolean drain(Subscription subscription) {
+        long head = subscription.head;
+        long tail = subscription.tail;
+        if (head == tail) {
+            return false;
+        }
+        for (; (head < tail) && subscription.active; head++) {
+            Entry entry = subscription.queue[(int)(head % subscription.queue.length)];
+            double lag_ms = (Timer.getFPGATimestamp() * 1000) - entry.system_timestamp;
+            subscription.last_lag_ms = lag_ms;
+            if (lag_ms > subscription.max_lag_ms) {
+                subscription.max_lag_ms = lag_ms;
+            }
+            try {
+                subscription.callback.timestampedDataReceived(entry.system_timestamp,
+                        entry.sensor_timestamp, entry.data, subscription.context);
+            } catch (RuntimeException ex) {
+                ex.printStackTrace();
+            }
+            subscription.delivered++;
+            /* Frees the entry for the IO thread */
+            subscription.head = head + 1;
+        }
+        return true;
+    }
+
+    /* Copies an update into the entry's preallocated update of the same type. */
+    private static AHRSUpdateBase copy(AHRSUpdateBase source, Entry entry) {
+        AHRSUpdateBase target;
+        if (source instanceof AHRSProtocol.AHRSUpdate) {
+            AHRSProtocol.AHRSUpdate s = (AHRSProtocol.AHRSUpdate)source;
+            AHRSProtocol.AHRSUpdate t = entry.ahrs_update;
+            t.cal_mag_x             = s.cal_mag_x;
+            t.cal_mag_y             = s.cal_mag_y;
+            t.cal_mag_z             = s.cal_mag_z;
+            t.mag_field_norm_ratio  = s.mag_field_norm_ratio;
+            t.mag_field_norm_scalar = s.mag_field_norm_scalar;
+            t.raw_mag_x             = s.raw_mag_x;
+            t.raw_mag_y             = s.raw_mag_y;
+            t.raw_mag_z             = s.raw_mag_z;
+            target = t;
+        } else if (source instanceof AHRSProtocol.AHRSPosUpdate) {
+            AHRSProtocol.AHRSPosUpdate s = (AHRSProtocol.AHRSPosUpdate)source;
+            AHRSProtocol.AHRSPosUpdate t;
+            if (source instanceof AHRSProtocol.AHRSPosTSUpdate) {
+                entry.ahrspos_ts_update.timestamp = ((AHRSProtocol.AHRSPosTSUpdate)source).timestamp;
+                t = entry.ahrspos_ts_update;
+            } else {
+                t = entry.ahrspos_update;
+            }
+            t.vel_x  = s.vel_x;
+            t.vel_y  = s.vel_y;
+            t.vel_z  = s.vel_z;
+            t.disp_x = s.disp_x;
+            t.disp_y = s.disp_y;
+            t.disp_z = s.disp_z;
+            target = t;
+        } else {
+            /* Not produced by the IO classes; can't be copied safely */
+            return source;
+        }
+        target.yaw                 = source.yaw;
+        target.pitch               = source.pitch;
+        target.roll                = source.roll;
+        target.compass_heading     = source.compass_heading;
+        target.altitude            = source.altitude;
+        target.fused_heading       = source.fused_heading;
+        target.linear_accel_x      = source.linear_accel_x;
+        target.linear_accel_y      = source.linear_accel_y;
+        target.linear_accel_z      = source.linear_accel_z;
+        target.mpu_temp            = source.mpu_temp;
+        target.quat_w              = source.quat_w;
+        target.quat_x              = source.quat_x;
+        target.quat_y              = source.quat_y;
+        target.quat_z              = source.quat_z;
+        target.barometric_pressure = source.barometric_pressure;
+        target.baro_temp           = source.baro_temp;
+        target.op_status           = source.op_status;
+        target.sensor_status       = source.sensor_status;
+        target.cal_status          = source.cal_status;
+        target.selftest_status     = source.selftest_status;
+        return target;
+    }
+}
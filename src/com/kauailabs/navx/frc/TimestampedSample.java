@@ -0,0 +1,29 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) Kauai Labs 2015. All Rights Reserved.                        */
+/*                                                                            */
+/* Created in support of Team 2465 (Kauaibots).  Go Purple Wave!              */
+/*                                                                            */
+/* Open Source Software - may be modified and shared by FRC teams. Any        */
+/* modifications to this code must be accompanied by the \License.txt file    */
+/* in the root directory of the project.                                      */
+/*----------------------------------------------------------------------------*/
+package com.kauailabs.navx.frc;
+
+/**
+ * One sample from the AHRS sample history.  Instances are filled in by
+ * AHRS.getSamplesSince(), and may be reused across calls.
+ */
+public class TimestampedSample {
+    /* FPGA time (in seconds) at which the sample was received. */
+    public double fpga_timestamp;
+    /* navX-Model device timestamp (in milliseconds). */
+    public long   sensor_timestamp;
+    /* Total accumulated yaw angle, as returned by AHRS.getAngle(). */
+    public double angle;
+    /* Rate of change of the angle (in degrees per second). */
+    public double rate;
+    /* World-frame linear acceleration (in G). */
+    public float  world_linear_accel_x;
+    public float  world_linear_accel_y;
+    public float  world_linear_accel_z;
+}
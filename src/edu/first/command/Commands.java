@@ -1,15 +1,62 @@
 package edu.first.command;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import edu.first.util.log.Logger;
 
 /**
  * Static utility class used to add functionality to commands.
  *
+ * <p>
+ * Commands that are run "in a new thread" are actually run on a small pool of
+ * daemon threads owned by this class, which are all started when the class is
+ * loaded. This means no threads are created while the robot is running. The
+ * pool is bounded: when more than {@link #MAX_QUEUED} commands are waiting,
+ * new ones are rejected (and counted) instead of piling up. Commands that never
+ * finish hold on to a pool thread, so those should be
+ * {@link #schedule(Command) scheduled} instead. Anything a pooled command
+ * throws is logged, and does not stop a command given to
+ * {@link #runEvery(Command, double)} from running again.
+ *
  * @since May 26 13
  * @author Joel Gallant
  */
 public final class Commands {
 
+    /**
+     * How many threads are kept for running commands.
+     */
+    public static final int POOL_SIZE = 4;
+    /**
+     * How many commands can be waiting for a thread before new ones are
+     * rejected.
+     */
+    public static final int MAX_QUEUED = 32;
+    private static final AtomicLong rejected = new AtomicLong();
+    private static final ScheduledThreadPoolExecutor pool;
+
+    static {
+        pool = new ScheduledThreadPoolExecutor(POOL_SIZE, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "command-pool-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        // cancelled delayed commands shouldn't sit in the queue until they expire
+        pool.setRemoveOnCancelPolicy(true);
+        pool.prestartAllCoreThreads();
+    }
+
     /**
      * Runs the command.
      *
@@ -20,18 +67,55 @@ public final class Commands {
     }
 
     /**
-     * Runs the command in a different (new) thread. Does not wait for command
-     * to finish.
+     * Runs the command on the robot's main thread using the {@link Scheduler}.
+     * Does not wait for command to finish.
+     *
+     * @param command command to run
+     */
+    public static void schedule(Command command) {
+        Scheduler.getInstance().schedule(command);
+    }
+
+    /**
+     * Runs the command on a pool thread. Does not wait for command to finish.
+     * The command is dropped (and logged) if the pool is full.
      *
      * @param command command to run
      */
     public static void runInNewThread(Command command) {
-        new Thread(command).start();
+        submit(command, 0);
+    }
+
+    /**
+     * Runs the command on a pool thread after a delay. Does not wait for the
+     * command to run.
+     *
+     * @param command command to run
+     * @param seconds how long to wait before running it
+     * @return handle that can cancel the command before it is run, or null if
+     * the pool is full
+     */
+    public static ScheduledFuture<?> runLater(Command command, double seconds) {
+        return submit(command, (long) (seconds * 1e9));
+    }
+
+    /**
+     * Runs the command on a pool thread every {@code seconds}, until the
+     * returned handle is cancelled. Runs do not overlap.
+     *
+     * @param command command to run
+     * @param seconds time between the start of each run
+     * @return handle that stops the command from running again
+     */
+    public static ScheduledFuture<?> runEvery(Command command, double seconds) {
+        long period = (long) (seconds * 1e9);
+        // the pool cancels a periodic task for good if it throws
+        return pool.scheduleAtFixedRate(logged(command), period, period, TimeUnit.NANOSECONDS);
     }
 
     /**
-     * Runs the command in a different (new) thread. Waits until the thread is
-     * completed running.
+     * Runs the command on a pool thread. Waits until the command is completed
+     * running.
      *
      * <p>
      * If the thread is interrupted while running, this method will finish and
@@ -41,17 +125,72 @@ public final class Commands {
      * @return exception if one occurred while waiting (otherwise null)
      */
     public static Exception runInNewThreadAndWait(Command command) {
-        Thread t = new Thread(command);
-        t.start();
+        ScheduledFuture<?> future = submit(command, 0);
+        if (future == null) {
+            return new RejectedExecutionException("Command pool is full");
+        }
         try {
-            t.join();
+            future.get();
         } catch (InterruptedException ex) {
             Logger.getLogger(Commands.class).error("Waiting for new thread interrupted", ex);
             return ex;
+        } catch (ExecutionException ex) {
+            Logger.getLogger(Commands.class).error("Command failed", ex.getCause());
         }
         return null;
     }
 
+    /**
+     * Returns how many commands are waiting for a pool thread, including ones
+     * that are delayed.
+     *
+     * @return commands in the queue
+     */
+    public static int getQueueDepth() {
+        return pool.getQueue().size();
+    }
+
+    /**
+     * Returns how many pool threads are running a command right now.
+     *
+     * @return busy threads
+     */
+    public static int getActiveCount() {
+        return pool.getActiveCount();
+    }
+
+    /**
+     * Returns how many commands have been dropped because the queue was full.
+     *
+     * @return rejected commands since startup
+     */
+    public static long getRejectedCount() {
+        return rejected.get();
+    }
+
+    private static ScheduledFuture<?> submit(Command command, long delayNanos) {
+        if (pool.getQueue().size() >= MAX_QUEUED) {
+            rejected.incrementAndGet();
+            Logger.getLogger(Commands.class).warn("Command pool is full, dropping " + command);
+            return null;
+        }
+        return pool.schedule(logged(command), delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // the pool keeps exceptions in the future, which is usually thrown away
+    private static Runnable logged(final Command command) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    command.run();
+                } catch (Throwable ex) {
+                    Logger.getLogger(Commands.class).error("Command " + command + " failed", ex);
+                }
+            }
+        };
+    }
+
     // cannot be subclassed or instantiated
     private Commands() throws IllegalAccessException {
         throw new IllegalAccessException();
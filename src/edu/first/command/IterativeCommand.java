@@ -0,0 +1,53 @@
+package edu.first.command;
+
+/**
+ * A command that is broken up into small steps so that it can share a thread
+ * with other commands. The {@link Scheduler} calls {@link #initialize()} once,
+ * then {@link #execute()} once per robot loop until {@link #isFinished()}
+ * returns true, and finally {@link #end()}.
+ *
+ * <p>
+ * None of these methods should block. If the command is run directly using
+ * {@link #run()}, the same steps are run back to back on the calling thread.
+ *
+ * @since Oct 18 26
+ */
+public interface IterativeCommand extends Command {
+
+    /**
+     * Called once before the first {@link #execute()}. Should reset any state
+     * left from a previous run, since commands can be scheduled more than once.
+     */
+    public void initialize();
+
+    /**
+     * Does one step of the command. Is called once per robot loop.
+     */
+    public void execute();
+
+    /**
+     * Returns whether the command is done, checked after every
+     * {@link #execute()}.
+     *
+     * @return if the command should stop being executed
+     */
+    public boolean isFinished();
+
+    /**
+     * Called once after the command finishes, or when it is cancelled.
+     */
+    public void end();
+
+    /**
+     * Runs every step of the command on the current thread, and returns when
+     * it is finished.
+     */
+    @Override
+    public default void run() {
+        initialize();
+        do {
+            execute();
+        } while (!isFinished());
+        end();
+    }
+}
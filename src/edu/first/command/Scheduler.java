@@ -0,0 +1,164 @@
+package edu.first.command;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import edu.first.util.log.Logger;
+
+/**
+ * Runs commands cooperatively on the robot's main thread. {@link #run()} is
+ * called once every robot loop by {@link edu.first.main.GamePeriods}, and
+ * advances every scheduled {@link IterativeCommand} by one step. Commands that
+ * are not iterative are run once, on the tick after they are scheduled.
+ *
+ * <p>
+ * Because everything is run on one thread, there is no thread creation or
+ * context switching, and commands always run in the order they were
+ * scheduled. Commands can be scheduled from any thread.
+ *
+ * @since Oct 18 26
+ */
+public final class Scheduler {
+
+    private static final Scheduler instance = new Scheduler();
+    private final List<Command> pending = new ArrayList<>();
+    private final List<IterativeCommand> running = new ArrayList<>();
+
+    /**
+     * Returns the scheduler that is run by the robot loop.
+     *
+     * @return the main scheduler
+     */
+    public static Scheduler getInstance() {
+        return instance;
+    }
+
+    // Use getInstance() instead
+    private Scheduler() {
+    }
+
+    /**
+     * Adds a command to be started on the next {@link #run()}. Does nothing if
+     * the command is already scheduled.
+     *
+     * @throws NullPointerException when command is null
+     * @param command command to run
+     */
+    public void schedule(Command command) {
+        if (command == null) {
+            throw new NullPointerException("Null command given");
+        }
+        synchronized (this) {
+            if (!pending.contains(command) && !running.contains(command)) {
+                pending.add(command);
+            }
+        }
+    }
+
+    /**
+     * Returns whether the command is waiting to start or is still running.
+     *
+     * @param command command to check
+     * @return if the command has not finished
+     */
+    public synchronized boolean isScheduled(Command command) {
+        return pending.contains(command) || running.contains(command);
+    }
+
+    /**
+     * Stops a command. If it had already started, {@link IterativeCommand#end()}
+     * is called.
+     *
+     * @param command command to stop
+     */
+    public void cancel(Command command) {
+        boolean started;
+        synchronized (this) {
+            pending.remove(command);
+            started = running.remove(command);
+        }
+        if (started) {
+            end((IterativeCommand) command);
+        }
+    }
+
+    /**
+     * Stops every scheduled command.
+     */
+    public void cancelAll() {
+        List<IterativeCommand> stopped;
+        synchronized (this) {
+            pending.clear();
+            stopped = new ArrayList<>(running);
+            running.clear();
+        }
+        for (IterativeCommand command : stopped) {
+            end(command);
+        }
+    }
+
+    /**
+     * Starts commands that were scheduled since the last call, and executes
+     * every running command once. Commands that throw an exception are logged
+     * and dropped, so that they cannot stop the robot loop.
+     */
+    public void run() {
+        List<Command> started;
+        synchronized (this) {
+            started = new ArrayList<>(pending);
+            pending.clear();
+        }
+
+        for (Command command : started) {
+            try {
+                if (command instanceof IterativeCommand) {
+                    ((IterativeCommand) command).initialize();
+                    synchronized (this) {
+                        running.add((IterativeCommand) command);
+                    }
+                } else {
+                    command.run();
+                }
+            } catch (RuntimeException ex) {
+                Logger.getLogger(this).error("Command failed to start", ex);
+            }
+        }
+
+        List<IterativeCommand> current;
+        synchronized (this) {
+            current = new ArrayList<>(running);
+        }
+
+        Iterator<IterativeCommand> i = current.iterator();
+        while (i.hasNext()) {
+            IterativeCommand command = i.next();
+            boolean done;
+            try {
+                command.execute();
+                done = command.isFinished();
+            } catch (RuntimeException ex) {
+                Logger.getLogger(this).error("Command failed", ex);
+                done = true;
+            }
+
+            if (done) {
+                boolean removed;
+                synchronized (this) {
+                    removed = running.remove(command);
+                }
+                // may have been cancelled (and ended) by another thread
+                if (removed) {
+                    end(command);
+                }
+            }
+        }
+    }
+
+    private void end(IterativeCommand command) {
+        try {
+            command.end();
+        } catch (RuntimeException ex) {
+            Logger.getLogger(this).error("Command failed to end", ex);
+        }
+    }
+}
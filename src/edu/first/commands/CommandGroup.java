@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import edu.first.command.Command;
+import edu.first.command.IterativeCommand;
 
 /**
  * Command that encompasses multiple commands strung together. Runs commands
@@ -50,12 +51,19 @@ import edu.first.command.Command;
  * F6
  * </pre>
  *
+ * <p>
+ * When given to the {@link edu.first.command.Scheduler}, the group steps
+ * through its commands one robot loop at a time instead of blocking. Commands
+ * that are not {@link IterativeCommand iterative} are run in a single step.
+ *
  * @since May 26 13
  * @author Joel Gallant
  */
-public class CommandGroup implements Command {
+public class CommandGroup implements IterativeCommand {
 
     private final List<Command> commands = new ArrayList<>();
+    private int current;
+    private boolean currentStarted;
 
     /**
      * Protected constructor to prevent instantiating from other classes.
@@ -129,6 +137,63 @@ public class CommandGroup implements Command {
         ((ConcurrentCommandGroup) commands.get(commands.size() - 1)).add(command);
     }
 
+    /**
+     * Starts the group from its first command.
+     */
+    @Override
+    public void initialize() {
+        current = 0;
+        currentStarted = false;
+    }
+
+    /**
+     * Executes the current command once. Commands that finish move the group
+     * on to the next command within the same step.
+     */
+    @Override
+    public void execute() {
+        while (current < commands.size()) {
+            Command command = commands.get(current);
+            if (command instanceof IterativeCommand) {
+                IterativeCommand iterative = (IterativeCommand) command;
+                if (!currentStarted) {
+                    iterative.initialize();
+                    currentStarted = true;
+                }
+                iterative.execute();
+                if (!iterative.isFinished()) {
+                    return;
+                }
+                iterative.end();
+                currentStarted = false;
+            } else {
+                command.run();
+            }
+            current++;
+        }
+    }
+
+    /**
+     * Returns whether every command in the group has finished.
+     *
+     * @return if the group is done
+     */
+    @Override
+    public boolean isFinished() {
+        return current >= commands.size();
+    }
+
+    /**
+     * Ends the current command if the group was stopped part way through.
+     */
+    @Override
+    public void end() {
+        if (currentStarted) {
+            ((IterativeCommand) commands.get(current)).end();
+            currentStarted = false;
+        }
+    }
+
     /**
      * Runs all commands that have been added to this command group in the order
      * they have been added. To understand how they are run, see the
@@ -3,18 +3,24 @@ package edu.first.commands;
 import java.util.ArrayList;
 import java.util.List;
 import edu.first.command.Command;
-import edu.first.util.log.Logger;
+import edu.first.command.IterativeCommand;
 
 /**
  * Basic command group that runs multiple commands in parallel. Every command
  * inside of this group is started at the same time.
  *
+ * <p>
+ * Commands are interleaved on a single thread: each step executes every
+ * unfinished {@link IterativeCommand} once. Commands that are not iterative
+ * are run when the group starts, and block the others while they run.
+ *
  * @since May 26 13
  * @author Joel Gallant
  */
-public final class ConcurrentCommandGroup implements Command {
+public final class ConcurrentCommandGroup implements IterativeCommand {
 
     private final List<Command> commands;
+    private boolean[] finished = new boolean[0];
 
     /**
      * Constructs the command group using an array of commands to be run at the
@@ -54,26 +60,77 @@ public final class ConcurrentCommandGroup implements Command {
     }
 
     /**
-     * Runs all of the commands, and waits for them all to finish.
-     *
-     * @throws RuntimeException when threads are somehow interrupted
+     * Starts every command in the group.
      */
     @Override
-    public void run() {
-        try {
-            Thread[] threads = new Thread[commands.size()];
-            for (int x = 0; x < commands.size(); x++) {
-                threads[x] = new Thread((Command) commands.get(x));
+    public void initialize() {
+        finished = new boolean[commands.size()];
+        for (int x = 0; x < commands.size(); x++) {
+            Command command = commands.get(x);
+            if (command instanceof IterativeCommand) {
+                ((IterativeCommand) command).initialize();
+            } else {
+                command.run();
+                finished[x] = true;
             }
-            for (Thread thread : threads) {
-                thread.start();
+        }
+    }
+
+    /**
+     * Executes every command that has not finished yet once.
+     */
+    @Override
+    public void execute() {
+        for (int x = 0; x < commands.size(); x++) {
+            if (!finished[x]) {
+                IterativeCommand command = (IterativeCommand) commands.get(x);
+                command.execute();
+                if (command.isFinished()) {
+                    command.end();
+                    finished[x] = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether every command in the group has finished.
+     *
+     * @return if the group is done
+     */
+    @Override
+    public boolean isFinished() {
+        for (boolean done : finished) {
+            if (!done) {
+                return false;
             }
-            for (Thread thread : threads) {
-                thread.join();
+        }
+        return true;
+    }
+
+    /**
+     * Ends any command that has not finished, if the group was stopped early.
+     */
+    @Override
+    public void end() {
+        for (int x = 0; x < finished.length; x++) {
+            if (!finished[x]) {
+                ((IterativeCommand) commands.get(x)).end();
+                finished[x] = true;
             }
-        } catch (InterruptedException ex) {
-            Logger.getLogger(getClass()).error("Command Group interrupted", ex);
-            throw new RuntimeException("Command Group interrupted - " + ex.getMessage());
         }
     }
+
+    /**
+     * Runs all of the commands on the current thread, and waits for them all
+     * to finish.
+     */
+    @Override
+    public void run() {
+        initialize();
+        while (!isFinished()) {
+            execute();
+        }
+        end();
+    }
 }
@@ -0,0 +1,32 @@
+package edu.first.commands;
+
+import edu.first.command.Command;
+import edu.first.command.Commands;
+
+/**
+ * Command to run a command on the {@link edu.first.command.Scheduler} instead
+ * of on the current thread. Useful for binds that start long running commands.
+ *
+ * @since Oct 18 26
+ */
+public final class ScheduledCommand implements Command {
+
+    private final Command command;
+
+    /**
+     * Constructs the command with the underlying command to run.
+     *
+     * @param command command to run
+     */
+    public ScheduledCommand(Command command) {
+        this.command = command;
+    }
+
+    /**
+     * Schedules the command, if it isn't already running.
+     */
+    @Override
+    public final void run() {
+        Commands.schedule(command);
+    }
+}
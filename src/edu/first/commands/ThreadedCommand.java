@@ -4,7 +4,8 @@ import edu.first.command.Command;
 import edu.first.command.Commands;
 
 /**
- * Command to give threading functionality to a command.
+ * Command to give threading functionality to a command. The command is run
+ * on the pool in {@link Commands}, so no new thread is created.
  *
  * @since May 26 13
  * @author Joel Gallant
@@ -23,7 +24,7 @@ public final class ThreadedCommand implements Command {
     }
 
     /**
-     * Runs the command in a new thread.
+     * Runs the command on a pool thread.
      */
     @Override
     public final void run() {
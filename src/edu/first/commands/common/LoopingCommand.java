@@ -1,15 +1,56 @@
 package edu.first.commands.common;
 
-import edu.first.command.Command;
+import edu.first.command.IterativeCommand;
 
 /**
- * Command that runs in a loop until a condition returns false.
+ * Command that runs in a loop until a condition returns false. Can either be
+ * run directly, which loops on the calling thread, or given to the
+ * {@link edu.first.command.Scheduler}, which runs one loop per robot loop.
  *
  * @since June 17 13
  * @author Joel Gallant
  */
-public abstract class LoopingCommand implements Command {
+public abstract class LoopingCommand implements IterativeCommand {
     private boolean first = true;
+    private boolean finished = false;
+
+    /**
+     * Resets the loop so that the next iteration calls {@link #firstLoop()}.
+     */
+    @Override
+    public void initialize() {
+        first = true;
+        finished = false;
+    }
+
+    /**
+     * Checks {@link #continueLoop()}, then runs {@link #firstLoop()} on the
+     * first iteration and {@link #runLoop()} after that.
+     */
+    @Override
+    public final void execute() {
+        if (!continueLoop()) {
+            finished = true;
+            return;
+        }
+
+        if (first) {
+            first = false;
+            firstLoop();
+        } else {
+            runLoop();
+        }
+    }
+
+    /**
+     * Returns whether {@link #continueLoop()} has returned false.
+     *
+     * @return if the loop is done
+     */
+    @Override
+    public final boolean isFinished() {
+        return finished;
+    }
 
     /**
      * Runs {@link #firstLoop()}, then runs {@link #runLoop()} until
@@ -17,31 +58,22 @@ public abstract class LoopingCommand implements Command {
      */
     @Override
     public final void run() {
-        while (continueLoop()) {
-            if (first) {
-                first = false;
-                try {
-                    /*
-                     *  This checks if the firstLoop method has been overwritten by a subclass. 
-                     *  If firstLoop has not been overwritten, it will run a default runLoop iteration.
-                     */
-                    if (this.getClass().getMethod("firstLoop").getDeclaringClass().getTypeName().endsWith("LoopingCommand")) {
-                        runLoop();
-                    } else {
-                        firstLoop();
-                    }
-                } catch (NoSuchMethodException | SecurityException e1) {
-                    throw new RuntimeException(e1);
-                }
-            } else {
-                runLoop();
-            }
+        initialize();
+        while (!isFinished()) {
+            execute();
         }
-        
         end();
     }
 
-    public void firstLoop() {}
+    /**
+     * Runs on the first iteration instead of {@link #runLoop()}. By default,
+     * just runs {@code runLoop()}.
+     */
+    public void firstLoop() {
+        runLoop();
+    }
+
+    @Override
     public void end() {}
 
     /**
@@ -1,15 +1,18 @@
 package edu.first.commands.common;
 
-import edu.first.command.Command;
+import edu.first.command.IterativeCommand;
 import edu.first.util.log.Logger;
 
 /**
+ * Command that waits for a period of time. When run directly the thread
+ * sleeps, but when scheduled it just finishes once the time has passed.
  *
  * @author Joel Gallant <joelgallant236@gmail.com>
  */
-public class WaitCommand implements Command {
+public class WaitCommand implements IterativeCommand {
 
     private final long period;
+    private long start;
 
     public WaitCommand(long period) {
         this.period = period;
@@ -19,6 +22,24 @@ public class WaitCommand implements Command {
         this.period = (long) (seconds * 1000);
     }
 
+    @Override
+    public void initialize() {
+        start = System.currentTimeMillis();
+    }
+
+    @Override
+    public void execute() {
+    }
+
+    @Override
+    public boolean isFinished() {
+        return System.currentTimeMillis() - start >= period;
+    }
+
+    @Override
+    public void end() {
+    }
+
     @Override
     public void run() {
         try {
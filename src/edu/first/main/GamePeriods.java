@@ -5,6 +5,7 @@
 package edu.first.main;
 
 import ca.fourthreethreefour.Robot;
+import edu.first.command.Scheduler;
 import edu.first.robot.RobotMode;
 import edu.first.robot.SafeRobotMode;
 import edu.wpi.first.wpilibj.IterativeRobot;
@@ -19,6 +20,9 @@ import edu.wpi.first.wpilibj.IterativeRobot;
  * {@code GamePeriods}'s usefulness because it contains all of the methods of
  * {@code GamePeriods} and more.
  *
+ * Every periodic method also runs the {@link Scheduler} once, after the
+ * {@link RobotMode}'s own periodic method.
+ *
  * Please change the static variable {@link #robotMode} to your robot. Do so
  * however you wish, but you may experience problems if set statically (happens
  * before some internal initialisations of WPILibJ).
@@ -83,6 +87,7 @@ public final class GamePeriods extends IterativeRobot {
     @Override
     public void disabledPeriodic() {
         robotMode.periodicDisabled();
+        Scheduler.getInstance().run();
     }
 
     /**
@@ -105,6 +110,7 @@ public final class GamePeriods extends IterativeRobot {
     @Override
     public void autonomousPeriodic() {
         robotMode.periodicAutonomous();
+        Scheduler.getInstance().run();
     }
 
     /**
@@ -127,6 +133,7 @@ public final class GamePeriods extends IterativeRobot {
     @Override
     public void teleopPeriodic() {
         robotMode.periodicTeleoperated();
+        Scheduler.getInstance().run();
     }
 
     /**
@@ -149,6 +156,7 @@ public final class GamePeriods extends IterativeRobot {
     @Override
     public void testPeriodic() {
         robotMode.periodicTest();
+        Scheduler.getInstance().run();
     }
 
     /**
@@ -362,6 +362,7 @@ public class BangBangController extends Controller implements RateSensor, RateAc
      */
     @Override
     public final void run() {
+        long read = System.nanoTime();
         double in = input.get();
         double result;
 
@@ -403,6 +404,7 @@ public class BangBangController extends Controller implements RateSensor, RateAc
         }
 
         output.set(result);
+        recordOutputLatency(System.nanoTime() - read);
 
         synchronized (lock) {
             prevInput = in;
@@ -0,0 +1,298 @@
+package edu.first.module.controllers;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+import edu.first.module.controllers.Controller.LoopType;
+import edu.first.util.LatencyHistogram;
+import edu.first.util.dashboard.DashboardPublisher;
+import edu.first.util.log.Logger;
+
+/**
+ * Runs every enabled {@link Controller} on one shared thread. Each controller
+ * has its own deadline measured with {@link System#nanoTime()}, so periods can
+ * be shorter than a millisecond and don't get rounded.
+ *
+ * <p>
+ * Controllers with the same period are phase aligned: a newly added one starts
+ * on the same deadline as an existing one, so they run back to back in the
+ * same wakeup and see the same sensor readings.
+ *
+ * <p>
+ * A {@link LoopType#FIXED_RATE} controller that falls behind does not run in a
+ * burst to catch up. The missed periods are counted as overruns, and it skips
+ * ahead to the next deadline that is still in the future. A
+ * {@link LoopType#FIXED_DELAY} controller waits its period after every run.
+ *
+ * <p>
+ * Because controllers share a thread, a controller whose input blocks will
+ * delay the others. That delay shows up as jitter in their {@link Stats}.
+ *
+ * @since Oct 18 26
+ */
+public final class ControlLoop {
+
+    private static final ControlLoop instance = new ControlLoop();
+    private volatile Task[] tasks = new Task[0];
+    private Thread thread;
+
+    /**
+     * Returns the loop that all controllers are run on.
+     *
+     * @return the shared control loop
+     */
+    public static ControlLoop getInstance() {
+        return instance;
+    }
+
+    // Use getInstance() instead
+    private ControlLoop() {
+    }
+
+    /**
+     * Starts running {@code runnable} every {@code period} nanoseconds.
+     *
+     * @param runnable what to run every period
+     * @param period time between runs in nanoseconds
+     * @param loopType how the period is measured
+     * @param stats where to record timing of each run
+     * @return handle used to {@link #remove(Task) remove} it
+     */
+    synchronized Task add(Runnable runnable, long period, LoopType loopType, Stats stats) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Period must be positive, was " + period + "ns");
+        }
+        Task task = new Task(runnable, period, loopType, stats);
+        task.deadline = System.nanoTime();
+        for (Task other : tasks) {
+            if (other.period == period) {
+                task.deadline = other.deadline;
+                break;
+            }
+        }
+
+        Task[] added = Arrays.copyOf(tasks, tasks.length + 1);
+        added[tasks.length] = task;
+        tasks = added;
+
+        if (thread == null) {
+            thread = new Thread(this::loop, "control-loop");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MAX_PRIORITY);
+            thread.start();
+        } else {
+            LockSupport.unpark(thread);
+        }
+        return task;
+    }
+
+    /**
+     * Stops running a task. If it is in the middle of a run, that run will
+     * complete.
+     *
+     * @param task handle returned by {@code add}
+     */
+    synchronized void remove(Task task) {
+        task.removed = true;
+        Task[] remaining = new Task[tasks.length];
+        int size = 0;
+        for (Task t : tasks) {
+            if (t != task) {
+                remaining[size++] = t;
+            }
+        }
+        tasks = Arrays.copyOf(remaining, size);
+    }
+
+    private void loop() {
+        while (true) {
+            Task[] current = tasks;
+            if (current.length == 0) {
+                LockSupport.park(this);
+                continue;
+            }
+
+            long next = current[0].deadline;
+            for (Task task : current) {
+                if (task.deadline - next < 0) {
+                    next = task.deadline;
+                }
+            }
+
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                // wakes early when tasks change, so always check again
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+
+            for (Task task : current) {
+                if (!task.removed && task.deadline - System.nanoTime() <= 0) {
+                    task.runOnce();
+                }
+            }
+        }
+    }
+
+    /**
+     * A runnable that is registered with the loop.
+     */
+    static final class Task {
+
+        private final Runnable runnable;
+        private final long period;
+        private final LoopType loopType;
+        private final Stats stats;
+        // only written by the loop thread after being added
+        private volatile long deadline;
+        private volatile boolean removed;
+
+        private Task(Runnable runnable, long period, LoopType loopType, Stats stats) {
+            this.runnable = runnable;
+            this.period = period;
+            this.loopType = loopType;
+            this.stats = stats;
+        }
+
+        private void runOnce() {
+            long scheduled = deadline;
+            long start = System.nanoTime();
+            try {
+                runnable.run();
+            } catch (Throwable ex) {
+                // errors too, since the one loop thread runs every controller
+                Logger.getLogger(runnable).error("Controller failed", ex);
+            }
+            long end = System.nanoTime();
+
+            long missed = 0;
+            if (loopType == LoopType.FIXED_DELAY) {
+                deadline = end + period;
+            } else {
+                deadline += period;
+                if (deadline - end <= 0) {
+                    missed = (end - deadline) / period + 1;
+                    deadline += missed * period;
+                }
+            }
+            stats.record(start - scheduled, end - start, missed);
+        }
+    }
+
+    /**
+     * Timing of a controller's runs. Jitter is how late a run started compared
+     * to its deadline, duration is how long the whole run took, and output
+     * latency is how long it took from reading the input to setting the output
+     * (recorded by the controller itself). Values are written by the loop
+     * thread and can be read from anywhere.
+     */
+    public static final class Stats {
+
+        private volatile long overruns;
+        private final LatencyHistogram jitter = new LatencyHistogram();
+        private final LatencyHistogram duration = new LatencyHistogram();
+        private final LatencyHistogram outputLatency = new LatencyHistogram();
+
+        private void record(long jitter, long duration, long missed) {
+            overruns += missed;
+            this.jitter.record(jitter);
+            this.duration.record(duration);
+        }
+
+        void recordOutputLatency(long latency) {
+            outputLatency.record(latency);
+        }
+
+        /**
+         * Returns how many times the controller has run.
+         *
+         * @return number of runs
+         */
+        public long getRuns() {
+            return duration.getCount();
+        }
+
+        /**
+         * Returns how many periods were skipped because a run was too late.
+         *
+         * @return number of missed periods
+         */
+        public long getOverruns() {
+            return overruns;
+        }
+
+        /**
+         * Returns the average time between a deadline and the run starting.
+         *
+         * @return average jitter in seconds
+         */
+        public double getAverageJitter() {
+            return jitter.getMean();
+        }
+
+        /**
+         * Returns the longest time between a deadline and the run starting.
+         *
+         * @return worst jitter in seconds
+         */
+        public double getMaxJitter() {
+            return jitter.getMax();
+        }
+
+        /**
+         * Returns the longest time a single run took.
+         *
+         * @return worst run time in seconds
+         */
+        public double getMaxDuration() {
+            return duration.getMax();
+        }
+
+        /**
+         * Returns the distribution of how late runs started.
+         *
+         * @return jitter histogram
+         */
+        public LatencyHistogram getJitter() {
+            return jitter;
+        }
+
+        /**
+         * Returns the distribution of how long runs took.
+         *
+         * @return run time histogram
+         */
+        public LatencyHistogram getDuration() {
+            return duration;
+        }
+
+        /**
+         * Returns the distribution of time from reading input to setting
+         * output.
+         *
+         * @return output latency histogram
+         */
+        public LatencyHistogram getOutputLatency() {
+            return outputLatency;
+        }
+
+        /**
+         * Puts the median, 99th percentile and maximum of every histogram (in
+         * milliseconds) and the overrun count on the dashboard, under keys
+         * starting with {@code name}.
+         *
+         * @param name prefix of the dashboard keys
+         */
+        public void publish(String name) {
+            publish(name + " Jitter", jitter);
+            publish(name + " Duration", duration);
+            publish(name + " Output Latency", outputLatency);
+            DashboardPublisher.getInstance().putNumber(name + " Overruns", overruns);
+        }
+
+        private static void publish(String key, LatencyHistogram histogram) {
+            DashboardPublisher.getInstance().putNumber(key + " p50", histogram.getPercentile(50) * 1000);
+            DashboardPublisher.getInstance().putNumber(key + " p99", histogram.getPercentile(99) * 1000);
+            DashboardPublisher.getInstance().putNumber(key + " Max", histogram.getMax() * 1000);
+        }
+    }
+}
@@ -1,21 +1,20 @@
 package edu.first.module.controllers;
 
-import java.util.Timer;
-import java.util.TimerTask;
 import edu.first.module.Module;
 
 /**
  * The general module for virtual controllers. Runs the {@link #run()} method in
- * a loop whenever the module is enabled.
+ * a loop whenever the module is enabled. All controllers share the thread in
+ * {@link ControlLoop}.
  *
  * <p>
  * The two options for execution are {@link LoopType#FIXED_DELAY} and
  * {@link LoopType#FIXED_RATE}. A fixed-rate execution tries to ensure your
- * {@code run()} method is called at the rate given at all times. It will
- * dynamically adjust to try and run the method at the specified rate. See
- * {@link Timer#scheduleAtFixedRate(java.util.TimerTask, long, long)} for more
- * info. A fixed-delay execution waits the specified time after every execution
- * of {@code run()}. There is no compensation when threads get slow.
+ * {@code run()} method is called at the rate given at all times, against
+ * absolute deadlines. Periods that are missed entirely are skipped and counted
+ * in {@link #getLoopStats()}. A fixed-delay execution waits the specified time
+ * after every execution of {@code run()}. There is no compensation when threads
+ * get slow.
  *
  * @since May 30 2013
  * @author Joel Gallant
@@ -23,9 +22,10 @@ import edu.first.module.Module;
 public abstract class Controller extends Module.StandardModule implements
         Runnable {
 
-    private final int loopTime;
+    private final long loopTime;
     private final LoopType loopType;
-    private Timer loopController;
+    private final ControlLoop.Stats stats = new ControlLoop.Stats();
+    private ControlLoop.Task loopController;
 
     /**
      * Constructs the controller with the loop time and the type of loop to run.
@@ -35,7 +35,7 @@ public abstract class Controller extends Module.StandardModule implements
      * @param loopType kind of execution of the loop
      */
     public Controller(double loopTime, LoopType loopType) {
-        this.loopTime = (int) Math.round(loopTime * 1000.0);
+        this.loopTime = Math.round(loopTime * 1e9);
         this.loopType = loopType;
     }
 
@@ -56,12 +56,7 @@ public abstract class Controller extends Module.StandardModule implements
      */
     @Override
     protected void enableModule() {
-        if (loopType.equals(LoopType.FIXED_DELAY)) {
-            (loopController = new Timer()).schedule(task(), 0, loopTime);
-        } else if (loopType.equals(LoopType.FIXED_RATE)) {
-            (loopController = new Timer()).scheduleAtFixedRate(task(), 0,
-                    loopTime);
-        }
+        loopController = ControlLoop.getInstance().add(this, loopTime, loopType, stats);
     }
 
     /**
@@ -71,7 +66,8 @@ public abstract class Controller extends Module.StandardModule implements
     @Override
     protected void disableModule() {
         if (loopController != null) {
-            loopController.cancel();
+            ControlLoop.getInstance().remove(loopController);
+            loopController = null;
         }
     }
 
@@ -82,13 +78,24 @@ public abstract class Controller extends Module.StandardModule implements
     public void init() {
     }
 
-    private TimerTask task() {
-        return new TimerTask() {
-            @Override
-            public void run() {
-                Controller.this.run();
-            }
-        };
+    /**
+     * Returns how late and how long the runs of this controller have been.
+     *
+     * @return timing of this controller's loop
+     */
+    public ControlLoop.Stats getLoopStats() {
+        return stats;
+    }
+
+    /**
+     * Records how long it took from reading input to setting output in one run,
+     * for {@link #getLoopStats()}. Subclasses should call this from
+     * {@link #run()}.
+     *
+     * @param nanos time between reading and writing in nanoseconds
+     */
+    protected final void recordOutputLatency(long nanos) {
+        stats.recordOutputLatency(nanos);
     }
 
     /**
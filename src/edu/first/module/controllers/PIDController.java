@@ -1,5 +1,9 @@
 package edu.first.module.controllers;
 
+import java.util.concurrent.Phaser;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 import edu.first.identifiers.Input;
 import edu.first.identifiers.Output;
 import edu.first.identifiers.PositionalActuator;
@@ -11,6 +15,18 @@ import edu.wpi.first.wpilibj.DriverStation;
  * is thread safe and settings can be changed while it is running.
  *
  * <p>
+ * Reading results and changing settings never locks. Settings are kept in an immutable object that
+ * is swapped atomically when changed, and the control loop reads it once at
+ * the start of every cycle, so a change is applied all at once on the next
+ * cycle. Results are published the same way as an immutable {@link Snapshot},
+ * so reading them never blocks the control loop.
+ *
+ * <p>
+ * Every cycle has a number, {@link Snapshot#getCycle()}. Code that should act
+ * once per cycle can compare it to the last one it saw, or block until the
+ * next one with {@link #awaitCycle(long, double)}.
+ *
+ * <p>
  * To understand how PID works, visit:
  * <p>
  * <a href="http://youtu.be/UR0hOmjaHp0">PID Control - A brief introduction</a>
@@ -32,17 +48,14 @@ public class PIDController extends Controller implements PositionalSensor, Posit
     private static final double defaultLoopTime = 0.02;
     private final Input input;
     private final Output output;
-    private double P, I, D;
-    private double minimumInput = -1000000000, maximumInput = Double.MAX_VALUE;
-    private double minimumOutput = -1, maximumOutput = +1;
-    // Controller variables
-    // uses lock so user can't lock controller accidentally using "this"
-    private final Object lock = new Object();
-    private double setpoint = 0;
+    private final AtomicReference<Parameters> parameters = new AtomicReference<>(
+            new Parameters(0, 0, 0, -1000000000, Double.MAX_VALUE, -1, +1, 0));
+    private volatile Snapshot snapshot = new Snapshot(0, 0, 0, System.nanoTime(), 0);
+    // advances once per cycle, after the snapshot is published
+    private final Phaser cycles = new Phaser(1);
+    private volatile double tolerance = 0;
+    // Controller variables, only touched by the control loop
     private double totalError = 0;
-    private double prevError = 0;
-    private double prevResult = 0;
-    private double tolerance = 0;
 
     /**
      * Constructs the controller using its input and output. Uses the default
@@ -67,9 +80,7 @@ public class PIDController extends Controller implements PositionalSensor, Posit
      */
     public PIDController(Input input, Output output, double P, double I, double D) {
         this(input, output);
-        this.P = P;
-        this.I = I;
-        this.D = D;
+        setPID(P, I, D);
     }
 
     /**
@@ -105,9 +116,7 @@ public class PIDController extends Controller implements PositionalSensor, Posit
      */
     public PIDController(Input input, Output output, double loopTime, double P, double I, double D) {
         this(input, output, loopTime);
-        this.P = P;
-        this.I = I;
-        this.D = D;
+        setPID(P, I, D);
     }
 
     /**
@@ -145,9 +154,7 @@ public class PIDController extends Controller implements PositionalSensor, Posit
      */
     public PIDController(Input input, Output output, int loopTimeHertz, double P, double I, double D) {
         this(input, output, loopTimeHertz);
-        this.P = P;
-        this.I = I;
-        this.D = D;
+        setPID(P, I, D);
     }
 
     /**
@@ -157,15 +164,7 @@ public class PIDController extends Controller implements PositionalSensor, Posit
      * @param setpoint desired point that the input should reach
      */
     public void setSetpoint(double setpoint) {
-        synchronized (lock) {
-            if (setpoint < minimumInput) {
-                this.setpoint = minimumInput;
-            } else if (setpoint > maximumInput) {
-                this.setpoint = maximumInput;
-            } else {
-                this.setpoint = setpoint;
-            }
-        }
+        parameters.updateAndGet(p -> p.withSetpoint(setpoint));
     }
 
     /**
@@ -175,9 +174,7 @@ public class PIDController extends Controller implements PositionalSensor, Posit
      * @see PIDController for PID algorithm
      */
     public void setP(double P) {
-        synchronized (lock) {
-            this.P = P;
-        }
+        parameters.updateAndGet(p -> p.withPID(P, p.I, p.D));
     }
 
     /**
@@ -187,9 +184,7 @@ public class PIDController extends Controller implements PositionalSensor, Posit
      * @see PIDController for PID algorithm
      */
     public void setI(double I) {
-        synchronized (lock) {
-            this.I = I;
-        }
+        parameters.updateAndGet(p -> p.withPID(p.P, I, p.D));
     }
 
     /**
@@ -199,14 +194,12 @@ public class PIDController extends Controller implements PositionalSensor, Posit
      * @see PIDController for PID algorithm
      */
     public void setD(double D) {
-        synchronized (lock) {
-            this.D = D;
-        }
+        parameters.updateAndGet(p -> p.withPID(p.P, p.I, D));
     }
 
     /**
      * Sets the Proportional, Integral and Derivative coefficients in the PID
-     * algorithm.
+     * algorithm. All three are applied on the same cycle.
      *
      * @param P proportional coefficient
      * @param I integral coefficient
@@ -214,11 +207,7 @@ public class PIDController extends Controller implements PositionalSensor, Posit
      * @see PIDController for PID algorithm
      */
     public void setPID(double P, double I, double D) {
-        synchronized (lock) {
-            this.P = P;
-            this.I = I;
-            this.D = D;
-        }
+        parameters.updateAndGet(p -> p.withPID(P, I, D));
     }
 
     /**
@@ -228,9 +217,7 @@ public class PIDController extends Controller implements PositionalSensor, Posit
      * @see PIDController for PID algorithm
      */
     public double getP() {
-        synchronized (lock) {
-            return P;
-        }
+        return parameters.get().P;
     }
 
     /**
@@ -240,9 +227,7 @@ public class PIDController extends Controller implements PositionalSensor, Posit
      * @see PIDController for PID algorithm
      */
     public double getI() {
-        synchronized (lock) {
-            return I;
-        }
+        return parameters.get().I;
     }
 
     /**
@@ -252,9 +237,7 @@ public class PIDController extends Controller implements PositionalSensor, Posit
      * @see PIDController for PID algorithm
      */
     public double getD() {
-        synchronized (lock) {
-            return D;
-        }
+        return parameters.get().D;
     }
 
     /**
@@ -268,10 +251,8 @@ public class PIDController extends Controller implements PositionalSensor, Posit
         if (minimumInput > maximumInput) {
             throw new IllegalArgumentException(minimumInput + " is larger than " + maximumInput);
         }
-        synchronized (lock) {
-            this.minimumInput = minimumInput;
-            this.maximumInput = maximumInput;
-        }
+        parameters.updateAndGet(p -> new Parameters(p.P, p.I, p.D, minimumInput, maximumInput,
+                p.minimumOutput, p.maximumOutput, p.setpoint));
     }
 
     /**
@@ -286,10 +267,8 @@ public class PIDController extends Controller implements PositionalSensor, Posit
         if (minimumOutput > maximumOutput) {
             throw new IllegalArgumentException(minimumOutput + " is larger than " + maximumOutput);
         }
-        synchronized (lock) {
-            this.minimumOutput = minimumOutput;
-            this.maximumOutput = maximumOutput;
-        }
+        parameters.updateAndGet(p -> new Parameters(p.P, p.I, p.D, p.minimumInput, p.maximumInput,
+                minimumOutput, maximumOutput, p.setpoint));
     }
 
     /**
@@ -302,15 +281,23 @@ public class PIDController extends Controller implements PositionalSensor, Posit
         this.tolerance = tolerance;
     }
 
+    /**
+     * Returns the results of the last cycle of the controller. All values in
+     * the snapshot come from the same cycle.
+     *
+     * @return last published state of the controller
+     */
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
     /**
      * Returns the last computed output value.
      *
      * @return last result of PID algorithm
      */
     public double getPrevResult() {
-        synchronized (lock) {
-            return prevResult;
-        }
+        return snapshot.result;
     }
 
     /**
@@ -319,9 +306,7 @@ public class PIDController extends Controller implements PositionalSensor, Posit
      * @return current goal
      */
     public double getSetpoint() {
-        synchronized (lock) {
-            return setpoint;
-        }
+        return parameters.get().setpoint;
     }
 
     /**
@@ -330,9 +315,7 @@ public class PIDController extends Controller implements PositionalSensor, Posit
      * @return how far off input is from setpoint
      */
     public double getError() {
-        synchronized (lock) {
-            return prevError;
-        }
+        return snapshot.error;
     }
 
     /**
@@ -362,76 +345,92 @@ public class PIDController extends Controller implements PositionalSensor, Posit
      */
     @Override
     public final void run() {
+        long read = System.nanoTime();
         double in = input.get();
         double result;
-        double prevErr;
-
-        double sMinInput;
-        double sMaxInput;
-        double sSetpoint;
-        double sP;
-        double sI;
-        double sD;
-        double sTotalError;
-        double sMaxOutput;
-        double sMinOutput;
-
-        // Snapshot values to reduce time spent in synchronized blocks
-        synchronized (lock) {
-            sMinInput = this.minimumInput;
-            sMaxInput = this.maximumInput;
-            sSetpoint = this.setpoint;
-            sP = this.P;
-            sI = this.I;
-            sD = this.D;
-            sTotalError = this.totalError;
-            sMaxOutput = this.maximumOutput;
-            sMinOutput = this.minimumOutput;
-            prevErr = this.prevError;
-        }
 
-        if (in < sMinInput) {
-            in = sMinInput;
-        } else if (in > sMaxInput) {
-            in = sMaxInput;
+        // Settings are read once, so changes are applied at the start of a cycle
+        Parameters p = parameters.get();
+        double prevErr = snapshot.error;
+        double sTotalError = this.totalError;
+
+        if (in < p.minimumInput) {
+            in = p.minimumInput;
+        } else if (in > p.maximumInput) {
+            in = p.maximumInput;
         }
 
-        double error = sSetpoint - in;
+        double error = p.setpoint - in;
 
-        if (sI != 0) {
-            double potentialIGain = (sTotalError + error) * sI;
-            if (potentialIGain < sMaxOutput) {
-                if (potentialIGain > sMinOutput) {
+        if (p.I != 0) {
+            double potentialIGain = (sTotalError + error) * p.I;
+            if (potentialIGain < p.maximumOutput) {
+                if (potentialIGain > p.minimumOutput) {
                     sTotalError += error;
                 } else {
-                    sTotalError = sMinOutput / sI;
+                    sTotalError = p.minimumOutput / p.I;
                 }
             } else {
-                sTotalError = sMaxOutput / sI;
+                sTotalError = p.maximumOutput / p.I;
             }
         }
 
-        result = (sP * error)
-                + (sI * sTotalError)
-                + (sD * (error - prevErr));
+        result = (p.P * error)
+                + (p.I * sTotalError)
+                + (p.D * (error - prevErr));
 
-        if (result > sMaxOutput) {
-            result = sMaxOutput;
-        } else if (result < sMinOutput) {
-            result = sMinOutput;
+        if (result > p.maximumOutput) {
+            result = p.maximumOutput;
+        } else if (result < p.minimumOutput) {
+            result = p.minimumOutput;
         }
 
         output.set(result);
-        
-        synchronized (lock) {
-            prevError = error;
-            prevResult = result;
-            totalError = sTotalError;
+        recordOutputLatency(System.nanoTime() - read);
+
+        totalError = sTotalError;
+        snapshot = new Snapshot(error, result, p.setpoint, System.nanoTime(), snapshot.cycle + 1);
+        cycles.arrive();
+    }
+
+    /**
+     * Waits until the controller finishes a cycle numbered after
+     * {@code cycle}, and returns its snapshot. Returns right away if one
+     * already has. Pass the number of the last snapshot that was used to be
+     * woken exactly once per cycle, without missing any.
+     *
+     * @param cycle number of the last cycle seen
+     * @param timeout longest time to wait in seconds
+     * @return the newest snapshot, which is still from {@code cycle} or before
+     * if the wait timed out
+     * @throws InterruptedException when interrupted while waiting
+     */
+    public Snapshot awaitCycle(long cycle, double timeout) throws InterruptedException {
+        int phase = cycles.getPhase();
+        Snapshot current = snapshot;
+        if (current.cycle > cycle) {
+            return current;
         }
-        
-        synchronized (this) {
-            this.notifyAll();
+
+        try {
+            cycles.awaitAdvanceInterruptibly(phase, (long) (timeout * 1e9), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+            // fall through with whatever is newest
         }
+        return snapshot;
+    }
+
+    /**
+     * Waits until the controller finishes its next cycle, and returns its
+     * snapshot.
+     *
+     * @param timeout longest time to wait in seconds
+     * @return the newest snapshot
+     * @throws InterruptedException when interrupted while waiting
+     * @see #awaitCycle(long, double)
+     */
+    public Snapshot awaitNextCycle(double timeout) throws InterruptedException {
+        return awaitCycle(snapshot.cycle, timeout);
     }
 
     /**
@@ -442,9 +441,7 @@ public class PIDController extends Controller implements PositionalSensor, Posit
      */
     @Override
     public double get() {
-        synchronized (lock) {
-            return prevResult;
-        }
+        return snapshot.result;
     }
 
     /**
@@ -456,15 +453,7 @@ public class PIDController extends Controller implements PositionalSensor, Posit
      */
     @Override
     public void set(double value) {
-        synchronized (lock) {
-            if (value < minimumInput) {
-                this.setpoint = minimumInput;
-            } else if (value > maximumInput) {
-                this.setpoint = maximumInput;
-            } else {
-                this.setpoint = value;
-            }
-        }
+        setSetpoint(value);
     }
 
     /**
@@ -475,9 +464,7 @@ public class PIDController extends Controller implements PositionalSensor, Posit
      */
     @Override
     public double getPosition() {
-        synchronized (lock) {
-            return prevResult;
-        }
+        return snapshot.result;
     }
 
     /**
@@ -489,14 +476,101 @@ public class PIDController extends Controller implements PositionalSensor, Posit
      */
     @Override
     public void setPosition(double position) {
-        synchronized (lock) {
-            if (position < minimumInput) {
-                this.setpoint = minimumInput;
-            } else if (position > maximumInput) {
-                this.setpoint = maximumInput;
-            } else {
-                this.setpoint = position;
-            }
+        setSetpoint(position);
+    }
+
+    /**
+     * The result of one cycle of the controller. Immutable, so every value in
+     * it is from the same cycle.
+     */
+    public static final class Snapshot {
+
+        private final double error, result, setpoint;
+        private final long timestamp;
+        private final long cycle;
+
+        private Snapshot(double error, double result, double setpoint, long timestamp, long cycle) {
+            this.error = error;
+            this.result = result;
+            this.setpoint = setpoint;
+            this.timestamp = timestamp;
+            this.cycle = cycle;
+        }
+
+        /**
+         * Returns which cycle this is. Counts up by one every cycle, starting
+         * at 0 before the controller has run.
+         *
+         * @return number of the cycle
+         */
+        public long getCycle() {
+            return cycle;
+        }
+
+        /**
+         * Returns the difference between the setpoint and the input.
+         *
+         * @return error of the cycle
+         */
+        public double getError() {
+            return error;
+        }
+
+        /**
+         * Returns the output that was set.
+         *
+         * @return result of the cycle
+         */
+        public double getResult() {
+            return result;
+        }
+
+        /**
+         * Returns the setpoint the cycle was aiming for.
+         *
+         * @return setpoint of the cycle
+         */
+        public double getSetpoint() {
+            return setpoint;
+        }
+
+        /**
+         * Returns when the cycle finished, from {@link System#nanoTime()}.
+         *
+         * @return time of the cycle in nanoseconds
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+    }
+
+    // Settings of the controller, replaced as a whole whenever one changes
+    private static final class Parameters {
+
+        final double P, I, D;
+        final double minimumInput, maximumInput;
+        final double minimumOutput, maximumOutput;
+        final double setpoint;
+
+        Parameters(double P, double I, double D, double minimumInput, double maximumInput,
+                double minimumOutput, double maximumOutput, double setpoint) {
+            this.P = P;
+            this.I = I;
+            this.D = D;
+            this.minimumInput = minimumInput;
+            this.maximumInput = maximumInput;
+            this.minimumOutput = minimumOutput;
+            this.maximumOutput = maximumOutput;
+            this.setpoint = setpoint;
+        }
+
+        Parameters withPID(double P, double I, double D) {
+            return new Parameters(P, I, D, minimumInput, maximumInput, minimumOutput, maximumOutput, setpoint);
+        }
+
+        Parameters withSetpoint(double setpoint) {
+            double clamped = Math.max(minimumInput, Math.min(maximumInput, setpoint));
+            return new Parameters(P, I, D, minimumInput, maximumInput, minimumOutput, maximumOutput, clamped);
         }
     }
 }
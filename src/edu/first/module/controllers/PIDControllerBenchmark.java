@@ -0,0 +1,242 @@
+package edu.first.module.controllers;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+import edu.first.identifiers.Input;
+import edu.first.identifiers.Output;
+import edu.first.util.LatencyHistogram;
+
+/**
+ * Measures how reader threads affect the control thread of a
+ * {@link PIDController}. One thread runs the PID cycle back to back while
+ * {@code N} threads call the getters as fast as they can, and the time each
+ * cycle took is recorded. The same is done for a copy of the old locked
+ * implementation, so the two can be compared:
+ *
+ * <pre>
+ * java edu.first.module.controllers.PIDControllerBenchmark [seconds] [max readers]
+ * </pre>
+ *
+ * Nothing is run on the control loop thread, so this works off the robot.
+ *
+ * @since Oct 18 26
+ */
+public final class PIDControllerBenchmark {
+
+    /**
+     * Runs the benchmark. Arguments are the seconds to run each case for
+     * (default 2) and the most reader threads to try (default 8).
+     *
+     * @param args seconds and maximum readers
+     * @throws InterruptedException when interrupted while waiting for threads
+     */
+    public static void main(String[] args) throws InterruptedException {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 2;
+        int maxReaders = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+
+        // warm up both, so the JIT doesn't favour whichever runs second
+        run(new LockFree(), 2, 0.5);
+        run(new Locked(), 2, 0.5);
+
+        System.out.println("impl       readers  cycles/s    mean us   p99 us    max us   reads/s");
+        for (int readers = 0; readers <= maxReaders; readers = readers == 0 ? 1 : readers * 2) {
+            print("lock-free", readers, run(new LockFree(), readers, seconds));
+            print("locked", readers, run(new Locked(), readers, seconds));
+        }
+    }
+
+    private static void print(String name, int readers, Result result) {
+        System.out.printf("%-10s %7d %9.0f %10.3f %8.3f %9.1f %9.0f%n", name, readers,
+                result.cycles.getCount() / result.seconds,
+                result.cycles.getMean() * 1e6, result.cycles.getPercentile(99) * 1e6,
+                result.cycles.getMax() * 1e6, result.reads / result.seconds);
+    }
+
+    private static Result run(final Subject subject, int readers, double seconds) throws InterruptedException {
+        final LongAdder reads = new LongAdder();
+        final LatencyHistogram cycles = new LatencyHistogram();
+        final long end = System.nanoTime() + (long) (seconds * 1e9);
+        final CountDownLatch start = new CountDownLatch(1);
+
+        Thread[] threads = new Thread[readers + 1];
+        threads[0] = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                await(start);
+                while (System.nanoTime() - end < 0) {
+                    long before = System.nanoTime();
+                    subject.cycle();
+                    cycles.record(System.nanoTime() - before);
+                }
+            }
+        }, "benchmark-control");
+        for (int i = 1; i <= readers; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    await(start);
+                    double sink = 0;
+                    long count = 0;
+                    while (System.nanoTime() - end < 0) {
+                        sink += subject.read();
+                        count++;
+                    }
+                    reads.add(count);
+                    if (sink == 42) {
+                        // keeps the reads from being optimized away
+                        System.out.print("");
+                    }
+                }
+            }, "benchmark-reader-" + i);
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return new Result(cycles, reads.sum(), seconds);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Result {
+
+        private final LatencyHistogram cycles;
+        private final long reads;
+        private final double seconds;
+
+        private Result(LatencyHistogram cycles, long reads, double seconds) {
+            this.cycles = cycles;
+            this.reads = reads;
+            this.seconds = seconds;
+        }
+    }
+
+    // what is being measured: one control cycle, and one read of its state
+    private static interface Subject {
+
+        void cycle();
+
+        double read();
+    }
+
+    // a changing input, so every cycle does real work
+    private static final class Wave implements Input, Output {
+
+        private double t;
+        private volatile double out;
+
+        @Override
+        public double get() {
+            t += 0.001;
+            return Math.sin(t);
+        }
+
+        @Override
+        public void set(double value) {
+            out = value;
+        }
+    }
+
+    private static final class LockFree implements Subject {
+
+        private final PIDController controller;
+
+        private LockFree() {
+            Wave wave = new Wave();
+            controller = new PIDController(wave, wave, 0.5, 0.01, 0.1);
+            controller.setSetpoint(0.25);
+        }
+
+        @Override
+        public void cycle() {
+            controller.run();
+        }
+
+        @Override
+        public double read() {
+            return controller.getError() + controller.getPrevResult() + controller.getSetpoint();
+        }
+    }
+
+    // the synchronized PIDController this package used to have
+    private static final class Locked implements Subject {
+
+        private final Wave wave = new Wave();
+        private final Object lock = new Object();
+        private double P = 0.5, I = 0.01, D = 0.1;
+        private double minimumInput = -1, maximumInput = 1;
+        private double minimumOutput = -1, maximumOutput = 1;
+        private double setpoint = 0.25;
+        private double totalError, prevError, prevResult;
+
+        @Override
+        public void cycle() {
+            double in = wave.get();
+            double sMinInput, sMaxInput, sSetpoint, sP, sI, sD, sTotalError, sMaxOutput, sMinOutput, prevErr;
+            synchronized (lock) {
+                sMinInput = minimumInput;
+                sMaxInput = maximumInput;
+                sSetpoint = setpoint;
+                sP = P;
+                sI = I;
+                sD = D;
+                sTotalError = totalError;
+                sMaxOutput = maximumOutput;
+                sMinOutput = minimumOutput;
+                prevErr = prevError;
+            }
+
+            in = Math.max(sMinInput, Math.min(sMaxInput, in));
+            double error = sSetpoint - in;
+            if (sI != 0) {
+                double potentialIGain = (sTotalError + error) * sI;
+                if (potentialIGain < sMaxOutput) {
+                    if (potentialIGain > sMinOutput) {
+                        sTotalError += error;
+                    } else {
+                        sTotalError = sMinOutput / sI;
+                    }
+                } else {
+                    sTotalError = sMaxOutput / sI;
+                }
+            }
+            double result = (sP * error) + (sI * sTotalError) + (sD * (error - prevErr));
+            result = Math.max(sMinOutput, Math.min(sMaxOutput, result));
+            wave.set(result);
+
+            synchronized (lock) {
+                prevError = error;
+                prevResult = result;
+                totalError = sTotalError;
+            }
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+
+        @Override
+        public double read() {
+            double value;
+            synchronized (lock) {
+                value = prevError;
+            }
+            synchronized (lock) {
+                value += prevResult;
+            }
+            synchronized (lock) {
+                value += setpoint;
+            }
+            return value;
+        }
+    }
+}
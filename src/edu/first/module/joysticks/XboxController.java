@@ -1,7 +1,9 @@
 package edu.first.module.joysticks;
 
+import java.util.concurrent.ScheduledFuture;
+import edu.first.command.Command;
+import edu.first.command.Commands;
 import edu.wpi.first.wpilibj.Joystick;
-import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.GenericHID.RumbleType;
 
 /**
@@ -60,6 +62,7 @@ public class XboxController extends BindingJoystick {
      */
     public static final int LEFT_X = 0, LEFT_Y = 1, LEFT_TRIGGER = 2, RIGHT_TRIGGER = 3,
             RIGHT_X = 4, RIGHT_Y = 5, RIGHT_FROM_MIDDLE = 6, LEFT_FROM_MIDDLE = 7, TRIGGERS = 8;
+    private ScheduledFuture<?> stopRumble;
 
     /**
      * Constructs the joystick with the {@link edu.wpi.first.wpilibj.Joystick}
@@ -138,17 +141,33 @@ public class XboxController extends BindingJoystick {
         this(new Joystick(port), stickDeadband);
     }
     
-    public final void rumble(double timeout) {
-        new Thread(new Runnable() {
+    /**
+     * Rumbles the controller for {@code timeout} seconds. Calling this again
+     * while it is rumbling extends the rumble instead of starting another.
+     *
+     * @param timeout how long to rumble for in seconds
+     */
+    public final synchronized void rumble(double timeout) {
+        joystick.setRumble(RumbleType.kLeftRumble, 1);
+        joystick.setRumble(RumbleType.kRightRumble, 1);
+        if (stopRumble != null) {
+            stopRumble.cancel(false);
+        }
+        stopRumble = Commands.runLater(new Command() {
             @Override
             public void run() {
-                joystick.setRumble(RumbleType.kLeftRumble, 1);
-                joystick.setRumble(RumbleType.kRightRumble, 1);
-                Timer.delay(timeout);
-                joystick.setRumble(RumbleType.kLeftRumble, 0);
-                joystick.setRumble(RumbleType.kRightRumble, 0);
+                rumbleOff();
             }
-        }).start();
+        }, timeout);
+        if (stopRumble == null) {
+            // nothing would turn it off, so don't leave it on
+            rumbleOff();
+        }
+    }
+
+    private void rumbleOff() {
+        joystick.setRumble(RumbleType.kLeftRumble, 0);
+        joystick.setRumble(RumbleType.kRightRumble, 0);
     }
 
     /**
@@ -0,0 +1,223 @@
+package edu.first.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+import edu.first.identifiers.Input;
+import edu.first.util.log.Logger;
+
+/**
+ * An input whose value is read in the background. Reading a value from the
+ * dashboard or preferences is a table lookup, which is too slow to do every
+ * time a controller asks for it. Instead, every cached input is polled on one
+ * background thread (every 100 milliseconds by default), and {@link #get()}
+ * just returns the last value that was read.
+ *
+ * <p>
+ * Inputs are shared by name, so every call to
+ * {@link #of(String, double, DoubleSupplier)} with the same name returns the
+ * same input, and only the first source is used. Asking for an input with a
+ * different default than the one it was created with is an error, since that
+ * default would never be used.
+ *
+ * <p>
+ * Values that are set and values that are read are stored one at a time, so
+ * listeners see them in the order they happened. A read that started before a
+ * value was set is dropped, since it may have read the source before the new
+ * value was written.
+ *
+ * @since Oct 18 26
+ */
+public final class CachedInput implements Input {
+
+    private static final ConcurrentHashMap<String, CachedInput> inputs = new ConcurrentHashMap<>();
+    private static final ScheduledExecutorService thread = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "input-poller");
+        t.setDaemon(true);
+        return t;
+    });
+    private static ScheduledFuture<?> polls;
+    private final String name;
+    private final double defaultValue;
+    private final DoubleSupplier source;
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile double value;
+    // counts set values, guarded by this
+    private long version;
+
+    static {
+        setPeriod(0.1);
+    }
+
+    /**
+     * Returns the cached input for {@code name}, creating it if needed. When
+     * it is created, the source is read right away so that the first value is
+     * correct.
+     *
+     * @throws IllegalArgumentException when the input already exists with a
+     * different default value
+     * @param name unique name of the value, like its table key
+     * @param defaultValue value the source returns when there is no value
+     * @param source where to read the value from
+     * @return shared cached input
+     */
+    public static CachedInput of(String name, double defaultValue, DoubleSupplier source) {
+        CachedInput input = inputs.get(name);
+        if (input == null) {
+            input = inputs.computeIfAbsent(name, n -> new CachedInput(n, defaultValue, source));
+        }
+        if (Double.compare(input.defaultValue, defaultValue) != 0) {
+            throw new IllegalArgumentException(name + " already has the default value "
+                    + input.defaultValue + ", not " + defaultValue);
+        }
+        return input;
+    }
+
+    /**
+     * Changes how often every cached input is read.
+     *
+     * @throws IllegalArgumentException when period is not positive
+     * @param period seconds between reads
+     */
+    public static synchronized void setPeriod(double period) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Period must be positive, was " + period);
+        }
+        if (polls != null) {
+            polls.cancel(false);
+        }
+        long nanos = (long) (period * 1e9);
+        polls = thread.scheduleWithFixedDelay(CachedInput::pollAll, nanos, nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static void pollAll() {
+        for (CachedInput input : inputs.values()) {
+            try {
+                input.poll();
+            } catch (RuntimeException ex) {
+                Logger.getLogger(CachedInput.class).error("Could not read " + input.name, ex);
+            }
+        }
+    }
+
+    private CachedInput(String name, double defaultValue, DoubleSupplier source) {
+        this.name = name;
+        this.defaultValue = defaultValue;
+        this.source = source;
+        this.value = source.getAsDouble();
+    }
+
+    /**
+     * Returns the name that the input is shared by.
+     *
+     * @return name of the value
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the value the source returns when there is no value.
+     *
+     * @return default value
+     */
+    public double getDefaultValue() {
+        return defaultValue;
+    }
+
+    /**
+     * Returns the last value that was read. Never reads the source.
+     *
+     * @return latest known value
+     */
+    @Override
+    public double get() {
+        return value;
+    }
+
+    /**
+     * Sets the cached value without waiting for the next read. Used after
+     * writing a new value to the source, so that it can be read back right
+     * away. The source must return the new value from now on, or the next
+     * read will replace it.
+     *
+     * @param value value that was written to the source
+     */
+    public synchronized void update(double value) {
+        version++;
+        store(value);
+    }
+
+    /**
+     * Reads the source now, instead of waiting for the background thread.
+     */
+    public void poll() {
+        long before;
+        synchronized (this) {
+            before = version;
+        }
+        // the source isn't read while holding the lock, since it can be slow
+        double read = source.getAsDouble();
+        synchronized (this) {
+            if (version == before) {
+                store(read);
+            }
+        }
+    }
+
+    // only called while holding the lock
+    private void store(double value) {
+        if (Double.compare(this.value, value) != 0) {
+            this.value = value;
+            fire(value);
+        }
+    }
+
+    /**
+     * Adds a listener that is called whenever the value changes. Listeners
+     * are usually called from the background thread, one change at a time, so
+     * they should be quick and thread safe.
+     *
+     * @param listener what to call with new values
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener that was added with {@link #addListener(Listener)}.
+     *
+     * @param listener listener to stop calling
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void fire(double value) {
+        for (Listener listener : listeners) {
+            try {
+                listener.changed(this, value);
+            } catch (RuntimeException ex) {
+                Logger.getLogger(listener).error("Listener for " + name + " failed", ex);
+            }
+        }
+    }
+
+    /**
+     * Something that reacts to a cached value changing.
+     */
+    public static interface Listener {
+
+        /**
+         * Called when the value has changed.
+         *
+         * @param input the input that changed
+         * @param value the new value
+         */
+        public void changed(CachedInput input, double value);
+    }
+}
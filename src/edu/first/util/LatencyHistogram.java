@@ -0,0 +1,135 @@
+package edu.first.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed size histogram of durations in nanoseconds. Buckets are log-linear
+ * (like HdrHistogram): every power of two is split into 16 buckets, so any
+ * recorded value is known to within about 6%, from 1ns up to centuries, in
+ * under 1000 counters.
+ *
+ * <p>
+ * Recording never locks or allocates, so it is safe to do from a control loop
+ * while other threads read percentiles.
+ *
+ * @since Oct 18 26
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (63 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Adds a duration to the histogram. Negative values are counted as 0.
+     *
+     * @param nanos duration in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts.incrementAndGet(index(value));
+        count.incrementAndGet();
+        total.addAndGet(value);
+
+        long current;
+        while (value > (current = max.get())) {
+            if (max.compareAndSet(current, value)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns how many values have been recorded.
+     *
+     * @return number of values
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Returns the average of recorded values.
+     *
+     * @return mean in seconds
+     */
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : total.get() / (double) n / 1e9;
+    }
+
+    /**
+     * Returns the largest recorded value (exactly, not bucketed).
+     *
+     * @return maximum in seconds
+     */
+    public double getMax() {
+        return max.get() / 1e9;
+    }
+
+    /**
+     * Returns the value that {@code percentile} percent of recorded values are
+     * at or below. The answer is the top of the bucket it falls in, so it can
+     * be slightly high but never low.
+     *
+     * @throws IllegalArgumentException when percentile is not between 0 and 100
+     * @param percentile percentage between 0 and 100
+     * @return value at that percentile in seconds
+     */
+    public double getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException(percentile + " is not a percentage");
+        }
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(n * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highest(i), max.get()) / 1e9;
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Clears every recorded value. Values recorded at the same time as a reset
+     * may or may not be kept.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    private static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long highest(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long sub = index % SUB_BUCKETS;
+        long lowest = (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+        return lowest + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
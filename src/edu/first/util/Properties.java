@@ -2,6 +2,7 @@ package edu.first.util;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.StringTokenizer;
 import edu.first.util.log.Logger;
 
@@ -19,8 +20,9 @@ import edu.first.util.log.Logger;
  * EncoderDistance = 12.32
  * </pre>
  *
- * Properties are stored as strings only, and cannot be verified as
- * doubles/ints/longs/etc. That has to be done in client code.
+ * Properties are stored as strings, and are parsed as ints, doubles and
+ * booleans once when the file is read. Lookups use a hash index, so they take
+ * the same time no matter how many properties there are.
  *
  * @since May 13 13
  * @author Joel Gallant
@@ -29,11 +31,11 @@ public final class Properties {
 
     private final String propertiesContent;
     private final Property[] properties;
+    private final HashMap<String, Property> index;
 
     /**
-     * Constructs the object that will read the properties file. No processing
-     * or I/O is done inside of the constructor, so construction is not resource
-     * heavy.
+     * Constructs the object that will read the properties file. The file is
+     * read, parsed and indexed here, so that lookups are cheap afterwards.
      *
      * For all intents and purposes, {@code fileName} should be the same as the
      * argument in {@link TextFiles#getTextFromFile(java.lang.String)}. That
@@ -52,11 +54,15 @@ public final class Properties {
 
         StringTokenizer tokenizer = new StringTokenizer(propertiesContent, "\n\r=");
         Property[] p = new Property[tokenizer.countTokens() / 2];
+        HashMap<String, Property> i = new HashMap<>(p.length * 2);
         for (int x = 0; x < p.length; x++) {
             p[x] = new Property(tokenizer.nextToken(), tokenizer.nextToken());
+            // the first property with a key is the one that is used
+            i.putIfAbsent(p[x].key, p[x]);
         }
         // Buffer the array so less chance of accessing it mid-construction
         properties = p;
+        index = i;
     }
 
     /**
@@ -100,12 +106,17 @@ public final class Properties {
      * @return {@code Property} object corresponding to key
      */
     public Property getProperty(String key) {
-        for (Property property : properties) {
-            if (property.key.equals(key)) {
-                return property;
-            }
-        }
-        return null;
+        return index.get(key);
+    }
+
+    /**
+     * Returns whether there is a property with the key.
+     *
+     * @param key string used to declare the property
+     * @return if the key is in the file
+     */
+    public boolean contains(String key) {
+        return index.containsKey(key);
     }
 
     /**
@@ -128,7 +139,11 @@ public final class Properties {
      * @throws NullPointerException when key does not exist
      */
     public int toInt(String key) {
-        return Integer.parseInt(getValue(key));
+        Property p = getProperty(key);
+        if (!p.isInt) {
+            throw new NumberFormatException(p.value + " is not an int");
+        }
+        return p.intValue;
     }
 
     /**
@@ -140,7 +155,11 @@ public final class Properties {
      * @throws NullPointerException when key does not exist
      */
     public double toDouble(String key) {
-        return Double.parseDouble(getValue(key));
+        Property p = getProperty(key);
+        if (!p.isDouble) {
+            throw new NumberFormatException(p.value + " is not a double");
+        }
+        return p.doubleValue;
     }
 
     /**
@@ -152,7 +171,7 @@ public final class Properties {
      * @throws NullPointerException when key does not exist
      */
     public boolean toBoolean(String key) {
-        return Boolean.parseBoolean(getValue(key));
+        return getProperty(key).booleanValue;
     }
 
     /**
@@ -180,12 +199,12 @@ public final class Properties {
      * @return value given to the key in the file
      */
     public int toInt(String key, int backup) {
-        try {
-            return toInt(key);
-        } catch (Exception ex) {
-            Logger.getLogger(getClass()).debug(key + " property not found - using " + backup);
-            return backup;
+        Property p = getProperty(key);
+        if (p != null && p.isInt) {
+            return p.intValue;
         }
+        Logger.getLogger(getClass()).debug(key + " property not found - using " + backup);
+        return backup;
     }
 
     /**
@@ -196,12 +215,12 @@ public final class Properties {
      * @return value given to the key in the file
      */
     public double toDouble(String key, double backup) {
-        try {
-            return toDouble(key);
-        } catch (Exception ex) {
-            Logger.getLogger(getClass()).debug(key + " property not found - using " + backup);
-            return backup;
+        Property p = getProperty(key);
+        if (p != null && p.isDouble) {
+            return p.doubleValue;
         }
+        Logger.getLogger(getClass()).debug(key + " property not found - using " + backup);
+        return backup;
     }
 
     /**
@@ -213,12 +232,12 @@ public final class Properties {
      * specifically "true")
      */
     public boolean toBoolean(String key, boolean backup) {
-        try {
-            return toBoolean(key);
-        } catch (Exception ex) {
-            Logger.getLogger(getClass()).debug(key + " property not found - using " + backup);
-            return backup;
+        Property p = getProperty(key);
+        if (p != null) {
+            return p.booleanValue;
         }
+        Logger.getLogger(getClass()).debug(key + " property not found - using " + backup);
+        return backup;
     }
 
     /**
@@ -229,10 +248,39 @@ public final class Properties {
 
         private final String key;
         private final String value;
+        private final boolean isInt;
+        private final int intValue;
+        private final boolean isDouble;
+        private final double doubleValue;
+        private final boolean booleanValue;
 
         private Property(String key, String value) {
             this.key = key.trim();
             this.value = value.trim();
+
+            // parsed once here, so lookups never parse or throw
+            int i = 0;
+            boolean validInt = true;
+            try {
+                i = Integer.parseInt(this.value);
+            } catch (NumberFormatException ex) {
+                validInt = false;
+            }
+            double d = i;
+            boolean validDouble = validInt;
+            if (!validInt) {
+                validDouble = true;
+                try {
+                    d = Double.parseDouble(this.value);
+                } catch (NumberFormatException ex) {
+                    validDouble = false;
+                }
+            }
+            this.isInt = validInt;
+            this.intValue = i;
+            this.isDouble = validDouble;
+            this.doubleValue = d;
+            this.booleanValue = Boolean.parseBoolean(this.value);
         }
 
         /**
@@ -253,6 +301,25 @@ public final class Properties {
             return value;
         }
 
+        /**
+         * Returns whether the value is a valid int.
+         *
+         * @return if {@link Properties#toInt(java.lang.String)} would succeed
+         */
+        public boolean isInt() {
+            return isInt;
+        }
+
+        /**
+         * Returns whether the value is a valid double.
+         *
+         * @return if {@link Properties#toDouble(java.lang.String)} would
+         * succeed
+         */
+        public boolean isDouble() {
+            return isDouble;
+        }
+
         /**
          * Returns the equivalent of {@code key} + " = " + {@code value}.
          *
@@ -0,0 +1,124 @@
+package edu.first.util;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Compares lookup throughput of {@link Properties} against a copy of the old
+ * implementation, which scanned every property and parsed the value on each
+ * call. Files with 10, 100 and 1000 keys are written to a temporary directory
+ * and every key is read as a double, then the same number of missing keys are
+ * looked up with a backup value:
+ *
+ * <pre>
+ * java edu.first.util.PropertiesBenchmark [lookups per case]
+ * </pre>
+ *
+ * @since Oct 18 26
+ */
+public final class PropertiesBenchmark {
+
+    private static final int[] SIZES = {10, 100, 1000};
+
+    /**
+     * Runs the benchmark. The argument is the number of lookups to time for
+     * each case (default 2000000).
+     *
+     * @param args number of lookups
+     * @throws IOException when the temporary files cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        int lookups = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+
+        System.out.println("keys   old hit ns   new hit ns   old miss ns   new miss ns");
+        for (int size : SIZES) {
+            File file = File.createTempFile("properties", ".txt");
+            file.deleteOnExit();
+            StringBuilder contents = new StringBuilder();
+            String[] keys = new String[size];
+            String[] missing = new String[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = "Key" + i;
+                missing[i] = "Missing" + i;
+                contents.append(keys[i]).append(" = ").append(i * 0.5).append('\n');
+            }
+            TextFiles.writeAsFile(file, contents.toString());
+
+            Properties properties = new Properties(file);
+            Legacy legacy = new Legacy(properties);
+
+            // the first runs warm up the JIT and are thrown away
+            for (int i = 0; i < 2; i++) {
+                time(properties, legacy, keys, lookups / 10, false);
+                time(properties, legacy, keys, lookups / 10, true);
+                time(properties, legacy, missing, lookups / 10, false);
+                time(properties, legacy, missing, lookups / 10, true);
+            }
+            System.out.printf("%4d %12.1f %12.1f %13.1f %13.1f%n", size,
+                    time(properties, legacy, keys, lookups, true),
+                    time(properties, legacy, keys, lookups, false),
+                    time(properties, legacy, missing, lookups, true),
+                    time(properties, legacy, missing, lookups, false));
+        }
+    }
+
+    // returns nanoseconds per lookup
+    private static double time(Properties properties, Legacy legacy, String[] keys, int lookups, boolean old) {
+        double sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            String key = keys[i % keys.length];
+            if (old) {
+                sink += legacy.toDouble(key, -1);
+            } else {
+                // contains() is checked first so a miss isn't logged
+                sink += properties.contains(key) ? properties.toDouble(key, -1) : -1;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == 42) {
+            // keeps the results alive so the work can't be optimized away
+            System.out.print("");
+        }
+        return (double) elapsed / lookups;
+    }
+
+    // how Properties looked up values before it was indexed
+    private static final class Legacy {
+
+        private final String[] keys;
+        private final String[] values;
+
+        private Legacy(Properties properties) {
+            Properties.Property[] p;
+            try {
+                p = properties.getProperties();
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+            keys = new String[p.length];
+            values = new String[p.length];
+            for (int i = 0; i < p.length; i++) {
+                keys[i] = p[i].getKey();
+                values[i] = p[i].getValue();
+            }
+        }
+
+        private String getValue(String key) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i].equals(key)) {
+                    return values[i];
+                }
+            }
+            return null;
+        }
+
+        private double toDouble(String key, double backup) {
+            try {
+                return Double.parseDouble(getValue(key));
+            } catch (Exception ex) {
+                return backup;
+            }
+        }
+    }
+}
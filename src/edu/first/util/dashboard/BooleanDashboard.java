@@ -66,22 +66,24 @@ public class BooleanDashboard implements Switch, Position {
     }
 
     /**
-     * Sets the value to be associated with the key.
+     * Sets the value to be associated with the key. The dashboard is
+     * updated on the next {@link DashboardPublisher} flush.
      *
      * @param val new value to set
      */
     public void set(boolean val) {
-        SmartDashboard.putBoolean(key, val);
+        DashboardPublisher.getInstance().putBoolean(key, val);
     }
 
     /**
-     * Sets the value to be associated with the key.
+     * Sets the value to be associated with the key. The dashboard is
+     * updated on the next {@link DashboardPublisher} flush.
      *
      * @param pos new value to set
      */
     @Override
     public void setPosition(boolean pos) {
-        SmartDashboard.putBoolean(key, pos);
+        DashboardPublisher.getInstance().putBoolean(key, pos);
     }
 
     /**
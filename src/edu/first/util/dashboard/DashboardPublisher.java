@@ -0,0 +1,276 @@
+package edu.first.util.dashboard;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import edu.first.util.log.Logger;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * Collects values for the {@link SmartDashboard} and writes them from one
+ * background thread, once every period. Putting a value only stores it, so it
+ * is cheap to do every loop from any thread. If a value is put more than once
+ * in a period, only the latest is written, and values that haven't changed
+ * since they were last written (numbers within {@link #setEpsilon(double)
+ * epsilon}) are not written at all.
+ *
+ * <p>
+ * Because values are written later, reading a value back from the
+ * {@link SmartDashboard} right after putting it may return the old value. Use
+ * {@link #getNumber(String, double)} to read numbers back instead.
+ *
+ * @since Oct 18 26
+ */
+public final class DashboardPublisher {
+
+    private static final DashboardPublisher instance = new DashboardPublisher();
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService thread = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "dashboard-publisher");
+        t.setDaemon(true);
+        return t;
+    });
+    private final LongAdder puts = new LongAdder();
+    private volatile long publishes;
+    private volatile double epsilon = 1e-6;
+    private ScheduledFuture<?> flushes;
+
+    /**
+     * Returns the publisher that all dashboard values go through.
+     *
+     * @return the shared publisher
+     */
+    public static DashboardPublisher getInstance() {
+        return instance;
+    }
+
+    // Use getInstance() instead
+    private DashboardPublisher() {
+        setPeriod(0.1);
+    }
+
+    /**
+     * Changes how often values are written. The default is every 100
+     * milliseconds, which is how often the dashboard is updated anyway.
+     *
+     * @throws IllegalArgumentException when period is not positive
+     * @param period seconds between writes
+     */
+    public synchronized void setPeriod(double period) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Period must be positive, was " + period);
+        }
+        if (flushes != null) {
+            flushes.cancel(false);
+        }
+        long nanos = (long) (period * 1e9);
+        flushes = thread.scheduleAtFixedRate(this::flush, nanos, nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Changes how much a number has to change by before it is written again.
+     * The default is {@code 1e-6}.
+     *
+     * @param epsilon smallest change that is written
+     */
+    public void setEpsilon(double epsilon) {
+        this.epsilon = Math.abs(epsilon);
+    }
+
+    /**
+     * Stores a number to be written on the next flush.
+     *
+     * @param key unique key of the value
+     * @param value latest value
+     */
+    public void putNumber(String key, double value) {
+        NumberEntry entry = (NumberEntry) entry(key, NumberEntry.class);
+        entry.value = value;
+        entry.unpublished = true;
+        entry.dirty = true;
+    }
+
+    /**
+     * Stores a boolean to be written on the next flush.
+     *
+     * @param key unique key of the value
+     * @param value latest value
+     */
+    public void putBoolean(String key, boolean value) {
+        BooleanEntry entry = (BooleanEntry) entry(key, BooleanEntry.class);
+        entry.value = value;
+        entry.unpublished = true;
+        entry.dirty = true;
+    }
+
+    /**
+     * Stores a string to be written on the next flush.
+     *
+     * @param key unique key of the value
+     * @param value latest value
+     */
+    public void putString(String key, String value) {
+        StringEntry entry = (StringEntry) entry(key, StringEntry.class);
+        entry.value = value;
+        entry.unpublished = true;
+        entry.dirty = true;
+    }
+
+    /**
+     * Returns a number, including one that has been put but not written yet.
+     * Once it has been written, or if it was never put, the number is read
+     * from the {@link SmartDashboard}, so changes made on the dashboard are
+     * seen.
+     *
+     * @param key unique key of the value
+     * @param defaultValue value to return if none exists
+     * @return latest value
+     */
+    public double getNumber(String key, double defaultValue) {
+        Entry entry = entries.get(key);
+        if (entry instanceof NumberEntry && (entry.dirty || entry.unpublished)) {
+            return ((NumberEntry) entry).value;
+        }
+        return SmartDashboard.getNumber(key, defaultValue);
+    }
+
+    /**
+     * Returns how many values have been put.
+     *
+     * @return number of puts since startup
+     */
+    public long getPutCount() {
+        return puts.sum();
+    }
+
+    /**
+     * Returns how many values were actually written to the dashboard.
+     *
+     * @return number of writes since startup
+     */
+    public long getPublishCount() {
+        return publishes;
+    }
+
+    /**
+     * Returns how many puts did not cause a write, because the value was
+     * replaced before the next flush or had not changed.
+     *
+     * @return number of suppressed puts since startup
+     */
+    public long getSuppressedCount() {
+        return Math.max(0, getPutCount() - getPublishCount());
+    }
+
+    private Entry entry(String key, Class<? extends Entry> type) {
+        puts.increment();
+        Entry entry = entries.get(key);
+        if (entry == null || entry.getClass() != type) {
+            // a key that changes type is rare, so just start over with it
+            entry = entries.compute(key, (k, e) -> e != null && e.getClass() == type ? e : create(type));
+        }
+        return entry;
+    }
+
+    private static Entry create(Class<? extends Entry> type) {
+        if (type == NumberEntry.class) {
+            return new NumberEntry();
+        } else if (type == BooleanEntry.class) {
+            return new BooleanEntry();
+        } else {
+            return new StringEntry();
+        }
+    }
+
+    private void flush() {
+        long written = 0;
+        try {
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                Entry entry = e.getValue();
+                if (entry.dirty) {
+                    // cleared before reading, so a put during the flush is kept,
+                    // and unpublished covers the value until it is written
+                    entry.unpublished = true;
+                    entry.dirty = false;
+                    if (entry.publish(e.getKey(), epsilon)) {
+                        written++;
+                    }
+                    entry.unpublished = entry.dirty;
+                }
+            }
+        } catch (RuntimeException ex) {
+            Logger.getLogger(this).error("Dashboard flush failed", ex);
+        }
+        publishes += written;
+    }
+
+    // Latest value of a key. Fields without volatile are only used by the
+    // publisher thread.
+    private static abstract class Entry {
+
+        volatile boolean dirty;
+        // put, but maybe not in the dashboard yet
+        volatile boolean unpublished;
+        boolean published;
+
+        abstract boolean publish(String key, double epsilon);
+    }
+
+    private static final class NumberEntry extends Entry {
+
+        volatile double value;
+        double last;
+
+        @Override
+        boolean publish(String key, double epsilon) {
+            double current = value;
+            if (published && Math.abs(current - last) <= epsilon) {
+                return false;
+            }
+            SmartDashboard.putNumber(key, current);
+            last = current;
+            published = true;
+            return true;
+        }
+    }
+
+    private static final class BooleanEntry extends Entry {
+
+        volatile boolean value;
+        boolean last;
+
+        @Override
+        boolean publish(String key, double epsilon) {
+            boolean current = value;
+            if (published && current == last) {
+                return false;
+            }
+            SmartDashboard.putBoolean(key, current);
+            last = current;
+            published = true;
+            return true;
+        }
+    }
+
+    private static final class StringEntry extends Entry {
+
+        volatile String value;
+        String last;
+
+        @Override
+        boolean publish(String key, double epsilon) {
+            String current = value;
+            if (published && (current == null ? last == null : current.equals(last))) {
+                return false;
+            }
+            SmartDashboard.putString(key, current);
+            last = current;
+            published = true;
+            return true;
+        }
+    }
+}
@@ -2,11 +2,15 @@ package edu.first.util.dashboard;
 
 import edu.first.identifiers.Input;
 import edu.first.identifiers.Output;
+import edu.first.util.CachedInput;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj.tables.TableKeyNotDefinedException;
 
 /**
- * General class that interacts with number values on the {@link SmartDashboard}
+ * General class that interacts with number values on the {@link SmartDashboard}.
+ * Values are read in the background by a {@link CachedInput}, so that
+ * {@link #get()} is fast enough to use as a controller input. Values that are
+ * set are written by the {@link DashboardPublisher}.
  *
  * @since June 23 13
  * @author Joel Gallant
@@ -15,16 +19,23 @@ public class NumberDashboard implements Input, Output {
 
     private final String key;
     private final double defaultValue;
+    private final CachedInput cached;
 
     /**
      * Constructs the dashboard value with the key used to access it.
      *
+     * @throws IllegalArgumentException when another value with this key has a
+     * different default value
      * @param key unique key that accesses the value
      * @param defaultValue value to return if none exists
      */
     public NumberDashboard(String key, double defaultValue) {
         this.key = key;
         this.defaultValue = defaultValue;
+        // every instance with this key shares the same input, which reads
+        // through the publisher so that values waiting to be written are kept
+        this.cached = CachedInput.of("SmartDashboard/" + key, defaultValue,
+                () -> DashboardPublisher.getInstance().getNumber(key, defaultValue));
     }
 
     public NumberDashboard(int dashboardIndex, double defaultValue) {
@@ -56,22 +67,36 @@ public class NumberDashboard implements Input, Output {
 
     /**
      * Returns the current value associated with the key. Will return the
-     * default value when it does not {@link #exists() exist}.
+     * default value when it does not {@link #exists() exist}. The value can be
+     * up to one {@link CachedInput#setPeriod(double) period} old.
      *
      * @return current value
      */
     @Override
     public double get() {
-        return SmartDashboard.getNumber(key, defaultValue);
+        return cached.get();
     }
 
     /**
-     * Sets the value to be associated with the key.
+     * Adds a listener that is called whenever the value changes.
+     *
+     * @param listener what to call with new values
+     * @see CachedInput#addListener(CachedInput.Listener)
+     */
+    public void addListener(CachedInput.Listener listener) {
+        cached.addListener(listener);
+    }
+
+    /**
+     * Sets the value to be associated with the key. It is written to the
+     * dashboard on the next {@link DashboardPublisher} flush, but
+     * {@link #get()} returns it right away.
      *
      * @param val new value to set
      */
     @Override
     public void set(double val) {
-        SmartDashboard.putNumber(key, val);
+        DashboardPublisher.getInstance().putNumber(key, val);
+        cached.update(val);
     }
 }
@@ -76,11 +76,12 @@ public class StringDashboard implements StringInput {
     }
 
     /**
-     * Sets the value to be associated with the key.
+     * Sets the value to be associated with the key. The dashboard is
+     * updated on the next {@link DashboardPublisher} flush.
      *
      * @param val new value to set
      */
     public void set(String val) {
-        SmartDashboard.putString(key, val);
+        DashboardPublisher.getInstance().putString(key, val);
     }
 }
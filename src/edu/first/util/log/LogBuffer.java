@@ -0,0 +1,141 @@
+package edu.first.util.log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The queue between threads that log messages and the thread that writes them.
+ * It is a fixed size ring of slots that are allocated once, so logging only
+ * claims a slot with a compare-and-set and fills in its fields. Any number of
+ * threads can log at once, and there is a single writer thread.
+ *
+ * <p>
+ * When the ring is full, messages are dropped and counted instead of making
+ * the logging thread wait.
+ *
+ * @since Oct 18 26
+ */
+final class LogBuffer {
+
+    // how long the writer sleeps when there is nothing to write
+    private static final long IDLE_WAIT = 2000000;
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    // next slot for the writer, only written by the writer thread
+    private volatile long tail = 0;
+    // everything before this has been written and flushed
+    private volatile long flushed = 0;
+
+    interface Consumer {
+
+        void accept(Logger logger, Logger.Level level, String msg, Throwable error);
+
+        void endOfBatch();
+    }
+
+    LogBuffer(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two, was " + capacity);
+        }
+        slots = new Slot[capacity];
+        for (int x = 0; x < capacity; x++) {
+            slots[x] = new Slot();
+            slots[x].published = x - capacity;
+        }
+        mask = capacity - 1;
+    }
+
+    /**
+     * Adds a message to the ring. Never blocks.
+     *
+     * @return false if the ring was full and the message was dropped
+     */
+    boolean offer(Logger logger, Logger.Level level, String msg, Throwable error) {
+        long sequence;
+        do {
+            sequence = head.get();
+            if (sequence - tail >= slots.length) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        } while (!head.compareAndSet(sequence, sequence + 1));
+
+        Slot slot = slots[(int) sequence & mask];
+        slot.logger = logger;
+        slot.level = level;
+        slot.msg = msg;
+        slot.error = error;
+        // makes the fields above visible to the writer
+        slot.published = sequence;
+        return true;
+    }
+
+    /**
+     * Returns how many messages were dropped because the ring was full.
+     *
+     * @return dropped messages since startup
+     */
+    long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Returns whether every message that was offered has been written and
+     * flushed.
+     *
+     * @return if the writer has caught up
+     */
+    boolean isEmpty() {
+        return flushed == head.get();
+    }
+
+    /**
+     * Writes messages forever. Everything that is ready is given to
+     * {@code consumer} in one batch, followed by {@link Consumer#endOfBatch()}.
+     */
+    void drain(Consumer consumer) {
+        while (true) {
+            long next = tail;
+            int written = 0;
+            while (true) {
+                Slot slot = slots[(int) next & mask];
+                if (slot.published != next) {
+                    break;
+                }
+                Logger logger = slot.logger;
+                Logger.Level level = slot.level;
+                String msg = slot.msg;
+                Throwable error = slot.error;
+                slot.logger = null;
+                slot.msg = null;
+                slot.error = null;
+                tail = ++next;
+
+                try {
+                    consumer.accept(logger, level, msg, error);
+                } catch (RuntimeException ex) {
+                    ex.printStackTrace();
+                }
+                written++;
+            }
+
+            if (written > 0) {
+                consumer.endOfBatch();
+                flushed = next;
+            } else {
+                LockSupport.parkNanos(this, IDLE_WAIT);
+            }
+        }
+    }
+
+    private static final class Slot {
+
+        Logger logger;
+        Logger.Level level;
+        String msg;
+        Throwable error;
+        volatile long published;
+    }
+}
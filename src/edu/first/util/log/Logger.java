@@ -1,20 +1,32 @@
 package edu.first.util.log;
 
 import java.io.File;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 import edu.first.util.DriverstationInfo;
-import edu.first.util.TextFiles;
 import java.io.IOException;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * The logging abstraction that allows users to log messages at different
  * levels. This class allows the programmer to add custom logs that accompany
  * the console to tell the user about things.
  *
+ * <p>
+ * Logging never waits for I/O. Messages are put in a fixed size ring buffer,
+ * and a single background thread formats them and writes them to every log in
+ * batches. If messages are logged faster than they can be written, the ring
+ * fills up and new messages are dropped. The number of dropped messages is
+ * available from {@link #getDroppedCount()}, and is reported in the logs once
+ * there is room again.
+ *
  * @since June 10 13
  * @author Joel Gallant
  */
@@ -30,11 +42,22 @@ public final class Logger {
             System.out.println(msg);
         }
     };
-    private static final List<Log> DEFAULT_LOGS = Arrays
-            .asList(new Log[]{CONSOLE_LOG});
-    private static final HashMap<Class<?>, Logger> loggers = new HashMap<>();
+    private static final int BUFFER_SIZE = 1024;
+    // how long fatal() waits for messages to be written before quitting
+    private static final long FATAL_FLUSH_TIMEOUT = 1000;
+    private static final List<Log> DEFAULT_LOGS = new CopyOnWriteArrayList<>(
+            new Log[]{CONSOLE_LOG});
+    private static final ConcurrentHashMap<Class<?>, Logger> loggers = new ConcurrentHashMap<>();
+    private static final LogBuffer buffer = new LogBuffer(BUFFER_SIZE);
+    private static final Thread writer = new Thread(() -> buffer.drain(new Writer()), "log-writer");
     private final Class<?> origin;
-    private final List<Log> logs = new ArrayList<>(DEFAULT_LOGS);
+    private final List<Log> logs = new CopyOnWriteArrayList<>(DEFAULT_LOGS);
+
+    static {
+        writer.setDaemon(true);
+        writer.setPriority(Thread.MIN_PRIORITY);
+        writer.start();
+    }
 
     /**
      * Returns the current logger for the origin. All loggers with the same
@@ -45,10 +68,7 @@ public final class Logger {
      * origin
      */
     public static Logger getLogger(Class<?> origin) {
-        if (!loggers.containsKey(origin)) {
-            loggers.put(origin, new Logger(origin));
-        }
-        return (Logger) loggers.get(origin);
+        return loggers.computeIfAbsent(origin, Logger::new);
     }
 
     /**
@@ -75,11 +95,48 @@ public final class Logger {
      * @param log the output to send messages to
      * @see #addLog(edu.first.util.log.Logger.Log)
      */
-    public static void addLogToAll(Log log) {
+    public static synchronized void addLogToAll(Log log) {
+        DEFAULT_LOGS.add(log);
         for (Logger l : loggers.values()) {
             l.addLog(log);
         }
-        DEFAULT_LOGS.add(log);
+    }
+
+    /**
+     * Returns how many messages have been dropped because they were logged
+     * faster than they could be written.
+     *
+     * @return number of dropped messages since startup
+     */
+    public static long getDroppedCount() {
+        return buffer.getDropped();
+    }
+
+    /**
+     * Waits until every message logged before this call has been written, or
+     * until the timeout runs out. Does not wait when called from the writing
+     * thread (inside of a {@link Log}).
+     *
+     * @param timeout maximum time to wait in milliseconds
+     * @return if all messages were written
+     */
+    public static boolean flush(long timeout) {
+        if (Thread.currentThread() == writer) {
+            return buffer.isEmpty();
+        }
+        long end = System.currentTimeMillis() + timeout;
+        while (!buffer.isEmpty()) {
+            if (System.currentTimeMillis() >= end) {
+                return false;
+            }
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
     }
 
     // Use static factory instead
@@ -94,7 +151,9 @@ public final class Logger {
      * @param log the output to send messages to
      */
     public void addLog(Log log) {
-        logs.add(log);
+        if (!logs.contains(log)) {
+            logs.add(log);
+        }
     }
 
     /**
@@ -104,7 +163,7 @@ public final class Logger {
      * @param msg message to send user
      */
     public void debug(String msg) {
-        send(new Message(Level.DEBUG, origin, msg));
+        send(Level.DEBUG, msg, null);
     }
 
     /**
@@ -114,7 +173,7 @@ public final class Logger {
      * @param msg message to send user
      */
     public void info(String msg) {
-        send(new Message(Level.INFO, origin, msg));
+        send(Level.INFO, msg, null);
     }
 
     /**
@@ -126,7 +185,7 @@ public final class Logger {
      * @param msg message to send user
      */
     public void warn(String msg) {
-        send(new Message(Level.WARN, origin, msg));
+        send(Level.WARN, msg, null);
     }
 
     /**
@@ -139,8 +198,7 @@ public final class Logger {
      * @param error the error to print stack trace of
      */
     public void error(String msg, Throwable error) {
-        send(new Message(Level.ERROR, origin, msg));
-        error.printStackTrace();
+        send(Level.ERROR, msg, error);
     }
 
     /**
@@ -149,7 +207,8 @@ public final class Logger {
      *
      * <p>
      * This method <b>QUITS</b> the entire program with an error code of 8001.
-     * (after logging the problem)
+     * (after logging the problem, and waiting up to a second for it to be
+     * written)
      *
      * @see #addLog(edu.first.util.log.Logger.Log)
      * @see #displayLCDMessage(java.lang.String)
@@ -157,15 +216,15 @@ public final class Logger {
      * @param error the error to print stack trace of
      */
     public void fatal(String msg, Throwable error) {
-        send(new Message(Level.FATAL, origin, msg));
-        error.printStackTrace();
+        send(Level.FATAL, msg, error);
+        flush(FATAL_FLUSH_TIMEOUT);
         System.exit(8001);
     }
 
-    private void send(Message msg) {
-        Iterator<Log> i = logs.iterator();
-        while (i.hasNext()) {
-            i.next().send(msg.toString());
+    private void send(Level level, String msg, Throwable error) {
+        if (!buffer.offer(this, level, msg, error) && error != null) {
+            // don't lose stack traces, even if the message is dropped
+            error.printStackTrace();
         }
     }
 
@@ -177,19 +236,34 @@ public final class Logger {
     public static interface Log {
 
         /**
-         * Sends the message to the log.
+         * Sends the message to the log. Messages from a {@code Logger} are
+         * always sent from the same background thread.
          *
          * @param msg message to send to the user
          */
         public void send(String msg);
+
+        /**
+         * Makes sure that messages that were sent are written. Called by the
+         * background thread after every batch of messages. Does nothing by
+         * default.
+         */
+        public default void flush() {
+        }
     }
 
     /**
-     * An implementation of {@link Log} that logs to a text file.
+     * An implementation of {@link Log} that logs to a text file. The file is
+     * kept open, and messages are buffered until {@link #flush()}.
      */
     public static final class FileLog implements Log {
 
+        private static final int BUFFER_SIZE = 64 * 1024;
+        private static final byte[] NEW_LINE = "\n".getBytes(StandardCharsets.UTF_8);
         private final File file;
+        private final ByteBuffer pending = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private FileChannel channel;
+        private boolean failed;
 
         /**
          * Constructs the log with the file to log to.
@@ -206,40 +280,109 @@ public final class Logger {
          * Inserts the message at the very end of the file.
          */
         @Override
-        public void send(String msg) {
+        public synchronized void send(String msg) {
+            byte[] bytes = msg.getBytes(StandardCharsets.UTF_8);
+            if (pending.remaining() < bytes.length + NEW_LINE.length) {
+                flush();
+            }
+            if (pending.remaining() < bytes.length + NEW_LINE.length) {
+                write(ByteBuffer.wrap(NEW_LINE));
+                write(ByteBuffer.wrap(bytes));
+            } else {
+                pending.put(NEW_LINE).put(bytes);
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * Writes buffered messages to the file.
+         */
+        @Override
+        public synchronized void flush() {
+            pending.flip();
+            write(pending);
+            pending.clear();
+        }
+
+        private void write(ByteBuffer bytes) {
             try {
-                TextFiles.appendToNewLine(file, msg);
+                if (channel == null) {
+                    channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                            StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                }
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                failed = false;
             } catch (IOException ex) {
-                Logger.getLogger(FileLog.class).error("File log failed to write to file. Ironic.", ex);
+                close();
+                // only report once, in case this log is where errors go
+                if (!failed) {
+                    failed = true;
+                    Logger.getLogger(FileLog.class).error("File log failed to write to file. Ironic.", ex);
+                }
+            }
+        }
+
+        private void close() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ex) {
+                }
+                channel = null;
             }
         }
     }
 
-    private static enum Level {
+    static enum Level {
 
         DEBUG, INFO, WARN, ERROR, FATAL;
     }
 
-    private static final class Message {
+    // Runs on the log-writer thread
+    private static final class Writer implements LogBuffer.Consumer {
+
+        private final StringBuilder line = new StringBuilder();
+        private final Set<Log> written = Collections.newSetFromMap(new IdentityHashMap<>());
+        private long reportedDrops = 0;
 
-        private final Level l;
-        private final Class<?> o;
-        private final String m;
+        @Override
+        public void accept(Logger logger, Level level, String msg, Throwable error) {
+            line.setLength(0);
+            line.append(DriverstationInfo.getGamePeriod()).append(" - ");
+            line.append('[').append(level).append("] ");
+            line.append('@').append(logger.origin.getName()).append(' ');
+            line.append(" - ").append(msg);
+            String formatted = line.toString();
 
-        Message(Level l, Class<?> o, String m) {
-            this.l = l;
-            this.o = o;
-            this.m = m;
+            for (Log log : logger.logs) {
+                log.send(formatted);
+                written.add(log);
+            }
+            if (error != null) {
+                error.printStackTrace();
+            }
         }
 
         @Override
-        public String toString() {
-            StringBuilder buffer = new StringBuilder();
-            buffer.append(DriverstationInfo.getGamePeriod()).append(" - ");
-            buffer.append('[').append(l).append("] ");
-            buffer.append('@').append(o.getName()).append(' ');
-            buffer.append(" - ").append(m);
-            return buffer.toString();
+        public void endOfBatch() {
+            long dropped = buffer.getDropped();
+            if (dropped != reportedDrops) {
+                String msg = (dropped - reportedDrops) + " log messages were dropped";
+                reportedDrops = dropped;
+                accept(getLogger(Logger.class), Level.WARN, msg, null);
+            }
+
+            for (Log log : written) {
+                try {
+                    log.flush();
+                } catch (RuntimeException ex) {
+                    ex.printStackTrace();
+                }
+            }
+            written.clear();
         }
     }
 }
@@ -0,0 +1,398 @@
+package edu.first.util.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * A binary log of values that are recorded every loop. Channels are added
+ * once, before the log is opened, and each one holds the latest value set to
+ * it. Every call to {@link #record()} appends one fixed width record with the
+ * FPGA timestamp and the value of every channel.
+ *
+ * <p>
+ * The whole file is created and memory mapped when it is opened, so recording
+ * is a handful of writes to memory with no I/O, formatting or allocation. When
+ * the file is full, records are dropped and counted. The number of records
+ * written is kept in the header, so a log that was never closed (because the
+ * robot lost power) can still be read. Use {@link TelemetryReader} to read a
+ * log or to convert it to CSV.
+ *
+ * <p>
+ * File layout (big endian):
+ *
+ * <pre>
+ * int magic, int version, int record size, int channel count, long records
+ * for each channel: byte type, short name length, UTF-8 name
+ * for each record: long timestamp (microseconds), then each channel's value
+ * </pre>
+ *
+ * A log should only be used from one thread (normally the robot loop).
+ *
+ * @since Oct 18 26
+ */
+public final class TelemetryLog implements AutoCloseable {
+
+    static final int MAGIC = 0x544C4F47;
+    static final int VERSION = 1;
+    static final int RECORD_COUNT_OFFSET = 16;
+    /**
+     * Width of a string value in bytes. Strings longer than this (after being
+     * encoded with a length byte) are cut off.
+     */
+    public static final int STRING_WIDTH = 32;
+    private final File file;
+    private final int capacity;
+    private final List<Channel> channels = new ArrayList<>();
+    private Channel[] recorded;
+    private int recordSize = 8;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int dataOffset;
+    private long records;
+    private long dropped;
+
+    /**
+     * The types of values that channels can hold.
+     */
+    public static enum Type {
+
+        DOUBLE(8), LONG(8), BOOLEAN(1), STRING(STRING_WIDTH);
+        private final int width;
+
+        private Type(int width) {
+            this.width = width;
+        }
+
+        /**
+         * Returns how many bytes a value takes up in a record.
+         *
+         * @return width in bytes
+         */
+        public int getWidth() {
+            return width;
+        }
+    }
+
+    /**
+     * Constructs the log. Nothing is written until {@link #open()}.
+     *
+     * @param file where to write the log (replaced if it exists)
+     * @param capacity maximum number of records
+     */
+    public TelemetryLog(File file, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive, was " + capacity);
+        }
+        this.file = file;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds a channel that holds decimal numbers.
+     *
+     * @throws IllegalStateException when the log is already open
+     * @param name name of the channel, used as the CSV column header
+     * @return channel to set values to
+     */
+    public DoubleChannel addDouble(String name) {
+        return add(new DoubleChannel(name));
+    }
+
+    /**
+     * Adds a channel that holds whole numbers.
+     *
+     * @throws IllegalStateException when the log is already open
+     * @param name name of the channel, used as the CSV column header
+     * @return channel to set values to
+     */
+    public LongChannel addLong(String name) {
+        return add(new LongChannel(name));
+    }
+
+    /**
+     * Adds a channel that holds true or false.
+     *
+     * @throws IllegalStateException when the log is already open
+     * @param name name of the channel, used as the CSV column header
+     * @return channel to set values to
+     */
+    public BooleanChannel addBoolean(String name) {
+        return add(new BooleanChannel(name));
+    }
+
+    /**
+     * Adds a channel that holds short strings, like the current mode.
+     *
+     * @throws IllegalStateException when the log is already open
+     * @param name name of the channel, used as the CSV column header
+     * @return channel to set values to
+     * @see #STRING_WIDTH
+     */
+    public StringChannel addString(String name) {
+        return add(new StringChannel(name));
+    }
+
+    private <T extends Channel> T add(T added) {
+        if (buffer != null) {
+            throw new IllegalStateException("Channels must be added before the log is opened");
+        }
+        Channel c = added;
+        c.offset = recordSize;
+        recordSize += c.type.width;
+        channels.add(c);
+        return added;
+    }
+
+    /**
+     * Creates the file at its full size, writes the header and maps it into
+     * memory.
+     *
+     * @throws IOException when the file cannot be created
+     * @throws IllegalStateException when the log is already open
+     */
+    public void open() throws IOException {
+        if (buffer != null) {
+            throw new IllegalStateException("Log is already open");
+        }
+        recorded = channels.toArray(new Channel[channels.size()]);
+
+        byte[][] names = new byte[recorded.length][];
+        int headerSize = RECORD_COUNT_OFFSET + 8;
+        for (int x = 0; x < recorded.length; x++) {
+            names[x] = recorded[x].name.getBytes(StandardCharsets.UTF_8);
+            headerSize += 3 + names[x].length;
+        }
+
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                headerSize + (long) capacity * recordSize);
+
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(recordSize).putInt(recorded.length).putLong(0);
+        for (int x = 0; x < recorded.length; x++) {
+            buffer.put((byte) recorded[x].type.ordinal());
+            buffer.putShort((short) names[x].length).put(names[x]);
+        }
+        dataOffset = headerSize;
+        records = 0;
+    }
+
+    /**
+     * Appends a record with the current time and the latest value of every
+     * channel. Does nothing if the log is not open, and counts the record as
+     * dropped if the log is full.
+     */
+    public void record() {
+        if (buffer == null) {
+            return;
+        }
+        if (records >= capacity) {
+            dropped++;
+            return;
+        }
+
+        int start = dataOffset + (int) (records * recordSize);
+        buffer.putLong(start, (long) (Timer.getFPGATimestamp() * 1e6));
+        for (Channel c : recorded) {
+            c.write(buffer, start + c.offset);
+        }
+        // written last, so a partial record is never counted
+        buffer.putLong(RECORD_COUNT_OFFSET, ++records);
+    }
+
+    /**
+     * Returns how many records have been written.
+     *
+     * @return number of records
+     */
+    public long getRecordCount() {
+        return records;
+    }
+
+    /**
+     * Returns how many records were not written because the log was full.
+     *
+     * @return number of dropped records
+     */
+    public long getDroppedCount() {
+        return dropped;
+    }
+
+    /**
+     * Writes the log to disk and closes the file. Values can still be set, but
+     * are no longer recorded.
+     *
+     * @throws IOException when the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (buffer != null) {
+            buffer.force();
+            buffer = null;
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * A named value that is part of every record.
+     */
+    public static abstract class Channel {
+
+        private final String name;
+        private final Type type;
+        private int offset;
+
+        private Channel(String name, Type type) {
+            if (name == null) {
+                throw new NullPointerException("Null name given");
+            }
+            this.name = name;
+            this.type = type;
+        }
+
+        /**
+         * Returns the name of the channel.
+         *
+         * @return name
+         */
+        public final String getName() {
+            return name;
+        }
+
+        /**
+         * Returns what kind of value the channel holds.
+         *
+         * @return type of value
+         */
+        public final Type getType() {
+            return type;
+        }
+
+        abstract void write(MappedByteBuffer buffer, int index);
+    }
+
+    /**
+     * A channel that holds a decimal number.
+     */
+    public static final class DoubleChannel extends Channel {
+
+        private double value;
+
+        private DoubleChannel(String name) {
+            super(name, Type.DOUBLE);
+        }
+
+        /**
+         * Sets the value that will be in the next record.
+         *
+         * @param value latest value
+         */
+        public void set(double value) {
+            this.value = value;
+        }
+
+        @Override
+        void write(MappedByteBuffer buffer, int index) {
+            buffer.putDouble(index, value);
+        }
+    }
+
+    /**
+     * A channel that holds a whole number.
+     */
+    public static final class LongChannel extends Channel {
+
+        private long value;
+
+        private LongChannel(String name) {
+            super(name, Type.LONG);
+        }
+
+        /**
+         * Sets the value that will be in the next record.
+         *
+         * @param value latest value
+         */
+        public void set(long value) {
+            this.value = value;
+        }
+
+        @Override
+        void write(MappedByteBuffer buffer, int index) {
+            buffer.putLong(index, value);
+        }
+    }
+
+    /**
+     * A channel that holds true or false.
+     */
+    public static final class BooleanChannel extends Channel {
+
+        private boolean value;
+
+        private BooleanChannel(String name) {
+            super(name, Type.BOOLEAN);
+        }
+
+        /**
+         * Sets the value that will be in the next record.
+         *
+         * @param value latest value
+         */
+        public void set(boolean value) {
+            this.value = value;
+        }
+
+        @Override
+        void write(MappedByteBuffer buffer, int index) {
+            buffer.put(index, value ? (byte) 1 : (byte) 0);
+        }
+    }
+
+    /**
+     * A channel that holds a short string. The string is only encoded when it
+     * changes, so setting the same string every loop costs nothing.
+     */
+    public static final class StringChannel extends Channel {
+
+        private final byte[] encoded = new byte[STRING_WIDTH];
+        private String value;
+
+        private StringChannel(String name) {
+            super(name, Type.STRING);
+        }
+
+        /**
+         * Sets the value that will be in the next record. Values that don't
+         * fit in {@link #STRING_WIDTH} bytes are cut off.
+         *
+         * @param value latest value
+         */
+        public void set(String value) {
+            if (value == this.value || (value != null && value.equals(this.value))) {
+                return;
+            }
+            this.value = value;
+            byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+            int length = Math.min(bytes.length, STRING_WIDTH - 1);
+            encoded[0] = (byte) length;
+            System.arraycopy(bytes, 0, encoded, 1, length);
+        }
+
+        @Override
+        void write(MappedByteBuffer buffer, int index) {
+            for (int x = 0; x <= (encoded[0] & 0xFF); x++) {
+                buffer.put(index + x, encoded[x]);
+            }
+        }
+    }
+}
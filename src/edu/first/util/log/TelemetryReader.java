@@ -0,0 +1,203 @@
+package edu.first.util.log;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a log written by {@link TelemetryLog}. Usually used off the robot to
+ * convert a match log to CSV:
+ *
+ * <pre>
+ * java edu.first.util.log.TelemetryReader match.tlog match.csv
+ * </pre>
+ *
+ * @since Oct 18 26
+ */
+public final class TelemetryReader {
+
+    private final ByteBuffer buffer;
+    private final int recordSize;
+    private final long records;
+    private final String[] names;
+    private final TelemetryLog.Type[] types;
+    private final int[] offsets;
+    private final int dataOffset;
+
+    /**
+     * Converts a log to CSV. Arguments are the log file and the CSV file.
+     *
+     * @param args log file and CSV file
+     * @throws IOException when either file cannot be used
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: TelemetryReader <log file> <csv file>");
+            System.exit(1);
+        }
+        TelemetryReader reader = new TelemetryReader(new File(args[0]));
+        try (Writer out = Files.newBufferedWriter(new File(args[1]).toPath(), StandardCharsets.UTF_8)) {
+            reader.writeCSV(out);
+        }
+    }
+
+    /**
+     * Reads the header of a log. Records are read when they are asked for.
+     *
+     * @throws IOException when the file cannot be read or is not a telemetry
+     * log
+     * @param file log file written by {@link TelemetryLog}
+     */
+    public TelemetryReader(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.remaining() < TelemetryLog.RECORD_COUNT_OFFSET + 8
+                || buffer.getInt() != TelemetryLog.MAGIC) {
+            throw new IOException(file + " is not a telemetry log");
+        }
+        int version = buffer.getInt();
+        if (version != TelemetryLog.VERSION) {
+            throw new IOException(file + " is version " + version + ", expected " + TelemetryLog.VERSION);
+        }
+        recordSize = buffer.getInt();
+        int count = buffer.getInt();
+        records = buffer.getLong();
+
+        names = new String[count];
+        types = new TelemetryLog.Type[count];
+        offsets = new int[count];
+        int offset = 8;
+        for (int x = 0; x < count; x++) {
+            types[x] = TelemetryLog.Type.values()[buffer.get()];
+            byte[] name = new byte[buffer.getShort()];
+            buffer.get(name);
+            names[x] = new String(name, StandardCharsets.UTF_8);
+            offsets[x] = offset;
+            offset += types[x].getWidth();
+        }
+        dataOffset = buffer.position();
+    }
+
+    /**
+     * Returns the number of complete records in the log.
+     *
+     * @return number of records
+     */
+    public long getRecordCount() {
+        return records;
+    }
+
+    /**
+     * Returns the number of channels in every record.
+     *
+     * @return number of channels
+     */
+    public int getChannelCount() {
+        return names.length;
+    }
+
+    /**
+     * Returns the name of a channel.
+     *
+     * @param channel index of the channel, in the order they were added
+     * @return name of the channel
+     */
+    public String getName(int channel) {
+        return names[channel];
+    }
+
+    /**
+     * Returns the type of a channel.
+     *
+     * @param channel index of the channel, in the order they were added
+     * @return type of the channel
+     */
+    public TelemetryLog.Type getType(int channel) {
+        return types[channel];
+    }
+
+    /**
+     * Returns the FPGA time that a record was taken at.
+     *
+     * @param record index of the record
+     * @return timestamp in seconds
+     */
+    public double getTimestamp(int record) {
+        return buffer.getLong(index(record)) / 1e6;
+    }
+
+    /**
+     * Returns the value of a channel in a record, as it would be written to a
+     * CSV file.
+     *
+     * @param record index of the record
+     * @param channel index of the channel
+     * @return value of the channel
+     */
+    public String getValue(int record, int channel) {
+        int index = index(record) + offsets[channel];
+        switch (types[channel]) {
+            case DOUBLE:
+                return Double.toString(buffer.getDouble(index));
+            case LONG:
+                return Long.toString(buffer.getLong(index));
+            case BOOLEAN:
+                return Boolean.toString(buffer.get(index) != 0);
+            default:
+                byte[] bytes = new byte[buffer.get(index) & 0xFF];
+                for (int x = 0; x < bytes.length; x++) {
+                    bytes[x] = buffer.get(index + 1 + x);
+                }
+                return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Writes every record as CSV, with a header line of channel names. The
+     * first column is the timestamp in seconds.
+     *
+     * @param out where to write the CSV
+     * @throws IOException when writing fails
+     */
+    public void writeCSV(Writer out) throws IOException {
+        BufferedWriter writer = out instanceof BufferedWriter ? (BufferedWriter) out : new BufferedWriter(out);
+        writer.write("Timestamp");
+        for (String name : names) {
+            writer.write(',');
+            writer.write(quote(name));
+        }
+        writer.newLine();
+
+        for (int record = 0; record < records; record++) {
+            writer.write(Double.toString(getTimestamp(record)));
+            for (int channel = 0; channel < names.length; channel++) {
+                writer.write(',');
+                String value = getValue(record, channel);
+                writer.write(types[channel] == TelemetryLog.Type.STRING ? quote(value) : value);
+            }
+            writer.newLine();
+        }
+        writer.flush();
+    }
+
+    private int index(int record) {
+        if (record < 0 || record >= records) {
+            throw new IndexOutOfBoundsException("Record " + record + " of " + records);
+        }
+        return dataOffset + record * recordSize;
+    }
+
+    private static String quote(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
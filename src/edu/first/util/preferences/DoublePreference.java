@@ -2,11 +2,14 @@ package edu.first.util.preferences;
 
 import edu.first.identifiers.Input;
 import edu.first.identifiers.Output;
+import edu.first.util.CachedInput;
 import edu.first.util.log.Logger;
 import edu.wpi.first.wpilibj.Preferences;
 
 /**
- * Preference that holds a double value.
+ * Preference that holds a double value. The value is read in the background by
+ * a {@link CachedInput}, so that {@link #get()} is fast enough to use as a
+ * controller input.
  *
  * @since June 13 13
  * @author Joel Gallant
@@ -14,17 +17,23 @@ import edu.wpi.first.wpilibj.Preferences;
 public final class DoublePreference extends Preference implements Input, Output {
 
     private final double defaultValue;
+    private final CachedInput cached;
 
     /**
      * Constructs the preference with its key used to access it in
      * {@link Preferences}.
      *
+     * @throws IllegalArgumentException when another preference with this key
+     * has a different default value
      * @param key string to access preference
      * @param defaultValue value to set if none exist
      */
     public DoublePreference(String key, double defaultValue) {
         super(key);
         this.defaultValue = defaultValue;
+        // every instance with this key shares the same input
+        this.cached = CachedInput.of("Preferences/" + key, defaultValue,
+                () -> PREFERENCES.getDouble(key, defaultValue));
     }
 
     /**
@@ -36,16 +45,28 @@ public final class DoublePreference extends Preference implements Input, Output
     public void set(double value) {
         Logger.getLogger(getClass()).debug("Setting " + getKey() + " to " + value);
         PREFERENCES.putDouble(getKey(), value);
+        cached.update(value);
     }
 
     /**
-     * Returns the current value of the preference.
+     * Returns the current value of the preference. The value can be up to one
+     * {@link CachedInput#setPeriod(double) period} old.
      *
      * @return value of preference
      */
     @Override
     public double get() {
-        return PREFERENCES.getDouble(getKey(), defaultValue);
+        return cached.get();
+    }
+
+    /**
+     * Adds a listener that is called whenever the value changes.
+     *
+     * @param listener what to call with new values
+     * @see CachedInput#addListener(CachedInput.Listener)
+     */
+    public void addListener(CachedInput.Listener listener) {
+        cached.addListener(listener);
     }
 
     /**